@@ -0,0 +1,86 @@
+package com.intrence.core.concurrent;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.intrence.core.persistence.jdbi.QueryAccounting;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs blocking calls (JDBC, Elasticsearch actionGet()) off the caller's thread and hands back a CompletableFuture.
+ * <p>
+ * Calls run on a fixed pool of {@code maxConcurrency} daemon threads, so at most that many run at once and the rest
+ * wait in the pool's queue. Set it to the size of the connection pool the calls draw from, so that waiting happens
+ * here rather than in the pool's own connection timeout.
+ */
+public class BlockingCallExecutor implements Managed {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingCallExecutor.class);
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    public BlockingCallExecutor(String name, int maxConcurrency, MetricRegistry metrics) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+
+        metrics.register(MetricRegistry.name(BlockingCallExecutor.class, name, "running"),
+                (Gauge<Integer>) executor::getActiveCount);
+        metrics.register(MetricRegistry.name(BlockingCallExecutor.class, name, "waiting"),
+                (Gauge<Integer>) () -> executor.getQueue().size());
+    }
+
+    /**
+     * Runs {@code call} once a thread is free, under the {@link Deadline} and counted into the {@link QueryAccounting}
+     * of the submitting thread. An exception thrown by {@code call} completes the future exceptionally with that
+     * exception, and a call whose deadline passed while it waited for a thread fails with
+     * {@link DeadlineExceededException} without running.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Deadline deadline = Deadline.current();
+        QueryAccounting accounting = QueryAccounting.current();
+        try {
+            executor.execute(() -> {
+                QueryAccounting previousAccounting = QueryAccounting.attach(accounting);
+                try (Deadline.Scope ignored = Deadline.bind(deadline)) {
+                    if (deadline != null && deadline.isExpired()) {
+                        throw new DeadlineExceededException(name + " call deadline passed before it started");
+                    }
+                    future.complete(call.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                } finally {
+                    QueryAccounting.restore(previousAccounting);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} did not finish its running calls in time", name);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.intrence.core.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which the work done for a request should be finished, bound to the thread doing that work.
+ * <p>
+ * Statement timeouts are shortened to the time left (see
+ * {@link com.intrence.core.persistence.jdbi.TimeoutStatementBuilder}), so a request that already spent most of its
+ * budget cannot hold a connection past it, and {@link BlockingCallExecutor} carries the deadline of the submitting
+ * thread over to the call.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * The deadline bound to this thread, or null when there is none.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * A deadline {@code millis} from now.
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Binds a deadline {@code millis} from now to this thread until the returned scope is closed. A deadline that is
+     * already bound and earlier stays in effect: a nested scope can only shorten the budget.
+     */
+    public static Scope within(long millis) {
+        Deadline deadline = after(millis);
+        Deadline previous = CURRENT.get();
+        return bind(previous != null && previous.deadlineNanos - deadline.deadlineNanos < 0 ? previous : deadline);
+    }
+
+    /**
+     * Binds {@code deadline}, which may be null, to this thread until the returned scope is closed.
+     */
+    public static Scope bind(Deadline deadline) {
+        Scope scope = new Scope(CURRENT.get());
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return scope;
+    }
+
+    /**
+     * Milliseconds left, rounded up, and zero or less once the deadline has passed.
+     */
+    public long remainingMillis() {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        return remainingNanos <= 0 ? remainingNanos / 1_000_000L : (remainingNanos + 999_999L) / 1_000_000L;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Restores the deadline bound before the scope was opened.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
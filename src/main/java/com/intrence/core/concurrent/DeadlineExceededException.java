@@ -0,0 +1,11 @@
+package com.intrence.core.concurrent;
+
+/**
+ * Thrown instead of starting work whose {@link Deadline} has already passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.sort.SortBuilder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ElasticSearchService} calls through its non-blocking variants, each given the same timeout (none when null).
+ * Every future completes with the service's result or exception.
+ */
+public class AsyncElasticSearchService {
+
+    private final ElasticSearchService elasticSearchService;
+    private final TimeValue timeout;
+
+    public AsyncElasticSearchService(ElasticSearchService elasticSearchService, TimeValue timeout) {
+        this.elasticSearchService = elasticSearchService;
+        this.timeout = timeout;
+    }
+
+    public CompletableFuture<GetResponse> getDocument(String index, String documentType, String id) {
+        return elasticSearchService.getDocumentAsync(index, documentType, id, timeout);
+    }
+
+    public CompletableFuture<Map<String, DocumentResult>> getDocuments(String index, String documentType, Collection<String> ids) {
+        return elasticSearchService.getDocumentsAsync(index, documentType, ids, timeout);
+    }
+
+    public CompletableFuture<List<SearchResult>> multiSearch(List<SearchSpec> searches) {
+        return elasticSearchService.multiSearchAsync(searches, timeout);
+    }
+
+    public CompletableFuture<IndexResponse> upsertDocument(String index, String documentType, String id, String body, boolean refreshIndex) {
+        return elasticSearchService.upsertDocumentAsync(index, documentType, id, body, refreshIndex, timeout);
+    }
+
+    public CompletableFuture<IndexResponse> upsertDocument(String index, String documentType, String id, BytesReference source,
+                                                           XContentType contentType, boolean refreshIndex) {
+        return elasticSearchService.upsertDocumentAsync(index, documentType, id, source, contentType, refreshIndex, timeout);
+    }
+
+    public CompletableFuture<SearchHits> searchDocuments(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
+                                                         int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
+                                                         boolean fetchSource) {
+        return elasticSearchService.searchDocumentsAsync(index, documentType, query, sortBy, offset, limit,
+                fieldsToInclude, fieldsToExclude, fetchSource, timeout);
+    }
+
+    public CompletableFuture<Boolean> deleteDocument(String index, String documentType, String id) {
+        return elasticSearchService.deleteDocumentAsync(index, documentType, id, timeout);
+    }
+
+    public CompletableFuture<BulkResponse> doBulkProcessing(BulkRequestBuilder bulkRequestBuilder) {
+        return elasticSearchService.doBulkProcessingAsync(bulkRequestBuilder, timeout);
+    }
+}
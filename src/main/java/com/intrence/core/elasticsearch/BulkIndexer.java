@@ -0,0 +1,201 @@
+package com.intrence.core.elasticsearch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Queues index and delete requests and sends them in bulk requests, instead of one round trip per document.
+ * <p>
+ * A bulk is sent once {@code bulkActions} requests or {@code bulkSizeMb} of them are queued, or {@code
+ * bulkFlushIntervalMillis} after the last one, with up to {@code bulkConcurrentRequests} bulks in flight. Items the
+ * cluster rejects because its write queue is full (EsRejectedExecutionException) are retried with exponential backoff.
+ * Items that still fail are logged and counted; they are not handed back to the caller.
+ * <p>
+ * At most {@code bulkMaxPendingActions} requests are queued or in flight. Beyond that, {@link #index} and
+ * {@link #delete} wait up to {@code bulkEnqueueTimeoutMillis} for room and then return false, so a producer faster
+ * than the cluster slows down instead of filling the heap. Keep it below {@code bulkActions * (bulkConcurrentRequests
+ * + 1)}: past that the processor itself blocks callers, with no timeout, until a bulk in flight completes.
+ * {@link #stop()} sends what is queued and waits for the bulks in flight.
+ */
+public class BulkIndexer implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkIndexer.class);
+
+    private final BulkProcessor bulkProcessor;
+    private final int maxPendingActions;
+    private final Semaphore pending;
+    private final long enqueueTimeoutMillis;
+    private final long drainTimeoutSeconds;
+    private final ConcurrentMap<Long, Timer.Context> bulkTimers = new ConcurrentHashMap<>();
+    private final Timer bulkTimer;
+    private final Meter succeeded;
+    private final Meter failed;
+    private final Meter rejected;
+
+    public BulkIndexer(ElasticSearchService elasticSearchService, ElasticSearchConfiguration conf, MetricRegistry metrics) {
+        this((bulkRequest, listener) -> elasticSearchService.getClient().bulk(bulkRequest, ActionListener.wrap(
+                response -> {
+                    elasticSearchService.written(bulkRequest);
+                    listener.onResponse(response);
+                },
+                e -> {
+                    elasticSearchService.written(bulkRequest);
+                    listener.onFailure(e);
+                })), elasticSearchService.getClient().threadPool(), conf, metrics);
+    }
+
+    BulkIndexer(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer, ThreadPool threadPool,
+                ElasticSearchConfiguration conf, MetricRegistry metrics) {
+        this.maxPendingActions = conf.getBulkMaxPendingActions();
+        this.pending = new Semaphore(maxPendingActions);
+        this.enqueueTimeoutMillis = conf.getBulkEnqueueTimeoutMillis();
+        this.drainTimeoutSeconds = conf.getBulkDrainTimeoutSeconds();
+        this.bulkTimer = metrics.timer(MetricRegistry.name(BulkIndexer.class, "bulk"));
+        this.succeeded = metrics.meter(MetricRegistry.name(BulkIndexer.class, "succeeded"));
+        this.failed = metrics.meter(MetricRegistry.name(BulkIndexer.class, "failed"));
+        this.rejected = metrics.meter(MetricRegistry.name(BulkIndexer.class, "rejected"));
+        metrics.register(MetricRegistry.name(BulkIndexer.class, "pending"), (Gauge<Integer>) this::getPendingActions);
+
+        this.bulkProcessor = new BulkProcessor.Builder(bulkConsumer, new Listener(), threadPool)
+                .setBulkActions(conf.getBulkActions())
+                .setBulkSize(new ByteSizeValue(conf.getBulkSizeMb(), ByteSizeUnit.MB))
+                .setFlushInterval(TimeValue.timeValueMillis(conf.getBulkFlushIntervalMillis()))
+                .setConcurrentRequests(conf.getBulkConcurrentRequests())
+                .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(conf.getBulkRetryInitialDelayMillis()),
+                        conf.getBulkMaxRetries()))
+                .build();
+    }
+
+    /**
+     * Queues the json {@code body} to be indexed under {@code id}.
+     *
+     * @return false when the queue stayed full for the enqueue timeout and the document was not queued
+     */
+    public boolean index(String index, String documentType, String id, String body) throws InterruptedException {
+        return add(new IndexRequest(index, documentType, id).source(body, XContentType.JSON));
+    }
+
+    /**
+     * Queues {@code source}, in {@code contentType}, to be indexed under {@code id}, e.g. as serialized by
+     * {@link ProductDocumentSerializer}.
+     *
+     * @return false when the queue stayed full for the enqueue timeout and the document was not queued
+     */
+    public boolean index(String index, String documentType, String id, BytesReference source, XContentType contentType)
+            throws InterruptedException {
+        return add(new IndexRequest(index, documentType, id).source(source, contentType));
+    }
+
+    /**
+     * Queues the deletion of the document {@code id}.
+     *
+     * @return false when the queue stayed full for the enqueue timeout and the deletion was not queued
+     */
+    public boolean delete(String index, String documentType, String id) throws InterruptedException {
+        return add(new DeleteRequest(index, documentType, id));
+    }
+
+    private boolean add(DocWriteRequest request) throws InterruptedException {
+        if (!pending.tryAcquire(enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            rejected.mark();
+            return false;
+        }
+        try {
+            bulkProcessor.add(request);
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Requests queued or in flight.
+     */
+    public int getPendingActions() {
+        return maxPendingActions - pending.availablePermits();
+    }
+
+    /**
+     * Sends whatever is queued now rather than when a flush trigger fires.
+     */
+    public void flush() {
+        bulkProcessor.flush();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (!bulkProcessor.awaitClose(drainTimeoutSeconds, TimeUnit.SECONDS)) {
+            LOGGER.warn("BulkIndexer: bulks still in flight after {}s, {} requests may not have been indexed",
+                    drainTimeoutSeconds, getPendingActions());
+        }
+    }
+
+    private class Listener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            bulkTimers.put(executionId, bulkTimer.time());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            finish(executionId, request);
+            int failures = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    failures++;
+                    LOGGER.warn("BulkIndexer: {} of {}/{}/{} failed: {}", item.getOpType(), item.getIndex(), item.getType(),
+                            item.getId(), item.getFailureMessage());
+                }
+            }
+            failed.mark(failures);
+            succeeded.mark(response.getItems().length - failures);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            finish(executionId, request);
+            failed.mark(request.numberOfActions());
+            LOGGER.error("BulkIndexer: bulk of {} requests failed", request.numberOfActions(), failure);
+        }
+
+        private void finish(long executionId, BulkRequest request) {
+            final Timer.Context timer = bulkTimers.remove(executionId);
+            if (timer != null) {
+                timer.stop();
+            }
+            pending.release(request.numberOfActions());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.action.get.GetResponse;
+
+/**
+ * The outcome of fetching one document of a {@link ElasticSearchService#getDocuments}: the document, its absence, or
+ * why it could not be fetched. A failed fetch, e.g. of a document on an unavailable shard, does not fail the others
+ * and is not a missing document.
+ */
+public class DocumentResult {
+
+    private final GetResponse response;
+    private final Exception failure;
+
+    DocumentResult(GetResponse response, Exception failure) {
+        this.response = response;
+        this.failure = failure;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return whether the document was fetched and exists
+     */
+    public boolean isFound() {
+        return response != null && response.isExists();
+    }
+
+    /**
+     * @return the response, or null when the fetch failed
+     */
+    public GetResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return the failure, or null when the fetch succeeded
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+}
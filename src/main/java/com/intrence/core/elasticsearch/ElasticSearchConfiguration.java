@@ -4,6 +4,7 @@
 package com.intrence.core.elasticsearch;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import javax.validation.constraints.NotNull;
 
@@ -20,6 +21,48 @@ public class ElasticSearchConfiguration {
     @JsonProperty
     String nodesToConnect;
 
+    @JsonProperty
+    long asyncRequestTimeoutMillis = 0;
+
+    @JsonProperty
+    int bulkActions = 1000;
+
+    @JsonProperty
+    long bulkSizeMb = 5;
+
+    @JsonProperty
+    long bulkFlushIntervalMillis = 1000;
+
+    @JsonProperty
+    int bulkConcurrentRequests = 2;
+
+    @JsonProperty
+    int bulkMaxPendingActions = 2500;
+
+    @JsonProperty
+    long bulkEnqueueTimeoutMillis = 1000;
+
+    @JsonProperty
+    long bulkRetryInitialDelayMillis = 100;
+
+    @JsonProperty
+    int bulkMaxRetries = 5;
+
+    @JsonProperty
+    long bulkDrainTimeoutSeconds = 30;
+
+    @JsonProperty
+    XContentType documentContentType = XContentType.JSON;
+
+    @JsonProperty
+    long searchCacheMaxSize = 0;
+
+    @JsonProperty
+    long searchCacheMaxStalenessMillis = 30000;
+
+    @JsonProperty
+    long searchCacheRefreshIntervalMillis = 1000;
+
     public String getClusterName() {
         return this.clusterName;
     }
@@ -32,4 +75,101 @@ public class ElasticSearchConfiguration {
         return this.nodesToConnect;
     }
 
+    /**
+     * How long {@link AsyncElasticSearchService} calls wait for a response; zero for no limit.
+     */
+    public long getAsyncRequestTimeoutMillis() {
+        return this.asyncRequestTimeoutMillis;
+    }
+
+    /**
+     * {@link BulkIndexer} sends a bulk once this many requests are queued.
+     */
+    public int getBulkActions() {
+        return this.bulkActions;
+    }
+
+    /**
+     * {@link BulkIndexer} sends a bulk once its requests add up to this size.
+     */
+    public long getBulkSizeMb() {
+        return this.bulkSizeMb;
+    }
+
+    /**
+     * {@link BulkIndexer} sends what is queued this long after the last bulk.
+     */
+    public long getBulkFlushIntervalMillis() {
+        return this.bulkFlushIntervalMillis;
+    }
+
+    /**
+     * How many bulks {@link BulkIndexer} has in flight at once.
+     */
+    public int getBulkConcurrentRequests() {
+        return this.bulkConcurrentRequests;
+    }
+
+    /**
+     * How many requests {@link BulkIndexer} holds, queued or in flight, before callers have to wait.
+     */
+    public int getBulkMaxPendingActions() {
+        return this.bulkMaxPendingActions;
+    }
+
+    /**
+     * How long a {@link BulkIndexer} caller waits for room in a full queue.
+     */
+    public long getBulkEnqueueTimeoutMillis() {
+        return this.bulkEnqueueTimeoutMillis;
+    }
+
+    public long getBulkRetryInitialDelayMillis() {
+        return this.bulkRetryInitialDelayMillis;
+    }
+
+    /**
+     * How often {@link BulkIndexer} retries items rejected by a full write queue on the cluster.
+     */
+    public int getBulkMaxRetries() {
+        return this.bulkMaxRetries;
+    }
+
+    /**
+     * How long {@link BulkIndexer#stop()} waits for the last bulks.
+     */
+    public long getBulkDrainTimeoutSeconds() {
+        return this.bulkDrainTimeoutSeconds;
+    }
+
+    /**
+     * The format {@link ProductDocumentSerializer} writes documents in: JSON, SMILE or CBOR.
+     */
+    public XContentType getDocumentContentType() {
+        return this.documentContentType;
+    }
+
+    /**
+     * How many search results {@link SearchResultCache} holds; zero, the default, disables it. Enabling it lets
+     * searchDocuments return results up to {@link #getSearchCacheMaxStalenessMillis()} old when the index is written by
+     * anything other than this service.
+     */
+    public long getSearchCacheMaxSize() {
+        return this.searchCacheMaxSize;
+    }
+
+    /**
+     * How long a cached search result is served at most, whatever was written since.
+     */
+    public long getSearchCacheMaxStalenessMillis() {
+        return this.searchCacheMaxStalenessMillis;
+    }
+
+    /**
+     * The refresh interval of the indices searched; results searched this soon after a write are not cached.
+     */
+    public long getSearchCacheRefreshIntervalMillis() {
+        return this.searchCacheRefreshIntervalMillis;
+    }
+
 }
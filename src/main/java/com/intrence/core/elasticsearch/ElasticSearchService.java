@@ -1,34 +1,63 @@
 package com.intrence.core.elasticsearch;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.Managed;
 import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequestBuilder;
 import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.replication.ReplicationRequestBuilder;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ElasticSearchService implements Managed {
 
@@ -36,8 +65,17 @@ public class ElasticSearchService implements Managed {
 
     private Client elasticsearchClient;
 
-    @Inject
+    // completes futures of requests that were given a timeout and got no response within it
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    private final SearchResultCache searchCache;
+
     public ElasticSearchService(ElasticSearchConfiguration elasticSearchConfiguration) {
+        this(elasticSearchConfiguration, SearchResultCache.disabled());
+    }
+
+    @Inject
+    public ElasticSearchService(ElasticSearchConfiguration elasticSearchConfiguration, SearchResultCache searchCache) {
 
         String clusterName = elasticSearchConfiguration.getClusterName();
         Integer discoveryPort = elasticSearchConfiguration.getPort();
@@ -53,6 +91,11 @@ public class ElasticSearchService implements Managed {
         } catch (Exception e) {
             throw new RuntimeException("ElasticSearchException: Failed to connect to elasticsearch node(s): " + nodesToConnect + ", " + e);
         }
+
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("elasticsearch-timeouts-%d").setDaemon(true).build());
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+
+        this.searchCache = searchCache;
     }
 
     @Override
@@ -62,9 +105,14 @@ public class ElasticSearchService implements Managed {
 
     @Override
     public void stop() throws Exception {
+        timeoutScheduler.shutdownNow();
         elasticsearchClient.close();
     }
 
+    Client getClient() {
+        return elasticsearchClient;
+    }
+
     public String[] getAllIndices() {
        return elasticsearchClient.admin().cluster().prepareState().execute().actionGet().getState().getMetaData().getConcreteAllIndices();
     }
@@ -90,7 +138,11 @@ public class ElasticSearchService implements Managed {
 
     public boolean deleteIndex(String indexName) {
         if(checkIndexExists(indexName)) {
-            elasticsearchClient.admin().indices().delete(new DeleteIndexRequest(indexName)).actionGet();
+            try {
+                elasticsearchClient.admin().indices().delete(new DeleteIndexRequest(indexName)).actionGet();
+            } finally {
+                searchCache.written(indexName);
+            }
             return true;
         } else {
             return false;
@@ -107,9 +159,157 @@ public class ElasticSearchService implements Managed {
         return executeESRequest(buildGetRequest(index, documentType, id));
     }
 
+    /**
+     * Fetches the documents with one multi-get. The result maps each id to its {@link DocumentResult}, in the order of
+     * {@code ids}: found, missing, or failed without failing the others.
+     */
+    public Map<String, DocumentResult> getDocuments(String index, String documentType, Collection<String> ids) {
+        LOGGER.debug(String.format("Get Documents index=%s, ids=%s", index, ids.size()));
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return documentResults(executeESRequest(elasticsearchClient.prepareMultiGet().add(index, documentType, ids)));
+    }
+
+    /**
+     * Runs the searches with one multi-search. The results are in the order of {@code searches}; a search that failed
+     * carries its failure without failing the others.
+     */
+    public List<SearchResult> multiSearch(List<SearchSpec> searches) {
+        LOGGER.debug(String.format("Multi search of %s searches", searches.size()));
+        if (searches.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return searchResults(executeESRequest(buildMultiSearchRequest(searches)));
+    }
+
     public IndexResponse upsertDocument(String index, String documentType, String id, String body, boolean refreshIndex) {
         LOGGER.debug(String.format("Upsert Document %s, index = %s, id = %s, refreshIndex=%s", body, index, id, refreshIndex));
-        return executeESRequest(buildIndexRequest(index, documentType, id, body, refreshIndex));
+        return upsertDocument(index, buildIndexRequest(index, documentType, id, body, refreshIndex));
+    }
+
+    /**
+     * Indexes {@code source} as it is, in {@code contentType}, e.g. as serialized by {@link ProductDocumentSerializer},
+     * without a String of the document in between.
+     */
+    public IndexResponse upsertDocument(String index, String documentType, String id, BytesReference source,
+                                        XContentType contentType, boolean refreshIndex) {
+        LOGGER.debug(String.format("Upsert Document of %s bytes %s, index = %s, id = %s, refreshIndex=%s",
+                source == null ? 0 : source.length(), contentType, index, id, refreshIndex));
+        return upsertDocument(index, buildIndexRequest(index, documentType, id, source, contentType, refreshIndex));
+    }
+
+    public IndexResponse upsertDocument(String index, String documentType, String id, byte[] source,
+                                        XContentType contentType, boolean refreshIndex) {
+        return upsertDocument(index, documentType, id, source == null ? null : new BytesArray(source), contentType, refreshIndex);
+    }
+
+    public IndexResponse upsertDocument(String index, String documentType, String id, XContentBuilder source, boolean refreshIndex) {
+        LOGGER.debug(String.format("Upsert Document index = %s, id = %s, refreshIndex=%s", index, id, refreshIndex));
+        return upsertDocument(index, buildIndexRequest(index, documentType, id, source, refreshIndex));
+    }
+
+    private IndexResponse upsertDocument(String index, IndexRequestBuilder indexRequestBuilder) {
+        try {
+            return executeESRequest(indexRequestBuilder);
+        } finally {
+            searchCache.written(index);
+        }
+    }
+
+    /*
+     * Non-blocking variants. The request is sent from the calling thread and the returned future is completed by a
+     * transport thread, so dependent stages must not block; use the *Async stage methods with an executor for that. A
+     * failure completes the future with the same RuntimeException("ElasticSearchException: ...") the blocking methods
+     * throw. With a non-null timeout the future fails if no response arrived in time; the request itself is not
+     * cancelled.
+     */
+
+    public CompletableFuture<GetResponse> getDocumentAsync(String index, String documentType, String id, TimeValue timeout) {
+        LOGGER.debug(String.format("Get Document async index=%s, id=%s", index, id));
+        return executeESRequestAsync(buildGetRequest(index, documentType, id), timeout);
+    }
+
+    public CompletableFuture<Map<String, DocumentResult>> getDocumentsAsync(String index, String documentType, Collection<String> ids,
+                                                                       TimeValue timeout) {
+        LOGGER.debug(String.format("Get Documents async index=%s, ids=%s", index, ids.size()));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return executeESRequestAsync(elasticsearchClient.prepareMultiGet().add(index, documentType, ids), timeout)
+                .thenApply(ElasticSearchService::documentResults);
+    }
+
+    public CompletableFuture<List<SearchResult>> multiSearchAsync(List<SearchSpec> searches, TimeValue timeout) {
+        LOGGER.debug(String.format("Multi search async of %s searches", searches.size()));
+        if (searches.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return executeESRequestAsync(buildMultiSearchRequest(searches), timeout).thenApply(ElasticSearchService::searchResults);
+    }
+
+    public CompletableFuture<IndexResponse> upsertDocumentAsync(String index, String documentType, String id, String body,
+                                                                boolean refreshIndex, TimeValue timeout) {
+        LOGGER.debug(String.format("Upsert Document async %s, index = %s, id = %s, refreshIndex=%s", body, index, id, refreshIndex));
+        try {
+            return upsertDocumentAsync(index, buildIndexRequest(index, documentType, id, body, refreshIndex), timeout);
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<IndexResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    public CompletableFuture<IndexResponse> upsertDocumentAsync(String index, String documentType, String id, BytesReference source,
+                                                                XContentType contentType, boolean refreshIndex, TimeValue timeout) {
+        LOGGER.debug(String.format("Upsert Document async of %s bytes %s, index = %s, id = %s, refreshIndex=%s",
+                source == null ? 0 : source.length(), contentType, index, id, refreshIndex));
+        try {
+            return upsertDocumentAsync(index, buildIndexRequest(index, documentType, id, source, contentType, refreshIndex), timeout);
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<IndexResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private CompletableFuture<IndexResponse> upsertDocumentAsync(String index, IndexRequestBuilder indexRequestBuilder, TimeValue timeout) {
+        return executeESRequestAsync(indexRequestBuilder, timeout).whenComplete((response, failure) -> searchCache.written(index));
+    }
+
+    public CompletableFuture<SearchHits> searchDocumentsAsync(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
+                                                              int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
+                                                              boolean fetchSource, TimeValue timeout) {
+        LOGGER.debug(String.format("Searching async for documents in index = %s, type = %s", index, documentType));
+        SearchSpec search = cacheableSearch(index, documentType, query, sortBy, offset, limit, fieldsToInclude, fieldsToExclude, fetchSource);
+        if (search == null) {
+            return executeESRequestAsync(buildSearchRequest(index, documentType, query, sortBy, offset, limit, fieldsToInclude,
+                    fieldsToExclude, fetchSource), timeout).thenApply(SearchResponse::getHits);
+        }
+        SearchHits cached = searchCache.get(search);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        SearchResultCache.SearchStart start = searchCache.searchStart(index);
+        return executeESRequestAsync(buildSearchRequest(index, documentType, query, sortBy, offset, limit, fieldsToInclude,
+                fieldsToExclude, fetchSource), timeout).thenApply(response -> {
+            searchCache.put(search, start, response.getHits());
+            return response.getHits();
+        });
+    }
+
+    /**
+     * @return a future completed with whether the document existed and was deleted
+     */
+    public CompletableFuture<Boolean> deleteDocumentAsync(String index, String documentType, String id, TimeValue timeout) {
+        return executeESRequestAsync(buildDeleteRequest(index, documentType, id), timeout)
+                .whenComplete((response, failure) -> searchCache.written(index))
+                .thenApply(response -> response.getResult() == DocWriteResponse.Result.DELETED);
+    }
+
+    public CompletableFuture<BulkResponse> doBulkProcessingAsync(BulkRequestBuilder bulkRequestBuilder, TimeValue timeout) {
+        return executeESRequestAsync(bulkRequestBuilder, timeout)
+                .whenComplete((response, failure) -> written(bulkRequestBuilder.request()));
     }
 
     public SearchHits searchDocuments(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
@@ -122,22 +322,33 @@ public class ElasticSearchService implements Managed {
         return searchDocuments(index, documentType, query, sortBy, offset, limit, null, null, fetchSource);
     }
 
+    /**
+     * Searches for documents. When the {@link SearchResultCache} is enabled, results may be served from it, see there
+     * for how fresh they are, and are then shared with other callers: the returned hits must not be modified.
+     */
     public SearchHits searchDocuments(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
                                       int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
                                       boolean fetchSource) {
-        SearchRequestBuilder searchBuilder = elasticsearchClient.prepareSearch(index);
-        searchBuilder.setTypes(documentType);
-        searchBuilder.setQuery(query);
-        searchBuilder.setFetchSource(fetchSource);
-        searchBuilder.setFetchSource(fieldsToInclude, fieldsToExclude);
-
-        if(sortBy != null) {
-            searchBuilder.addSort(sortBy);
+        SearchSpec search = cacheableSearch(index, documentType, query, sortBy, offset, limit, fieldsToInclude, fieldsToExclude, fetchSource);
+        if (search == null) {
+            return doSearchDocuments(index, documentType, query, sortBy, offset, limit, fieldsToInclude, fieldsToExclude, fetchSource);
         }
-        searchBuilder.setFrom(offset);
-        if(limit > 0) {
-            searchBuilder.setSize(limit);
+        SearchHits cached = searchCache.get(search);
+        if (cached != null) {
+            return cached;
         }
+        SearchResultCache.SearchStart start = searchCache.searchStart(index);
+        SearchHits searchHits = doSearchDocuments(index, documentType, query, sortBy, offset, limit, fieldsToInclude,
+                fieldsToExclude, fetchSource);
+        searchCache.put(search, start, searchHits);
+        return searchHits;
+    }
+
+    private SearchHits doSearchDocuments(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
+                                         int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
+                                         boolean fetchSource) {
+        SearchRequestBuilder searchBuilder = buildSearchRequest(index, documentType, query, sortBy, offset, limit,
+                fieldsToInclude, fieldsToExclude, fetchSource);
 
         LOGGER.debug(String.format("Searching for documents in index = %s, type = %s", index, documentType));
 
@@ -149,13 +360,142 @@ public class ElasticSearchService implements Managed {
 
     }
 
+    /**
+     * Iterates every hit of {@code query}, {@code pageSize} at a time, paging with search_after on {@code sortBy}
+     * followed by {@code _id} as a tie-breaker, so pages stay as fast as the first however deep the iteration goes and
+     * index.max_result_window does not apply. Documents indexed or deleted while iterating may or may not be seen.
+     */
+    public SearchHitIterator streamDocuments(String index, String documentType, QueryBuilder query, List<SortBuilder<?>> sortBy,
+                                             int pageSize, String[] fieldsToInclude, String[] fieldsToExclude) {
+        SearchRequestBuilder searchBuilder = elasticsearchClient.prepareSearch(index);
+        searchBuilder.setTypes(documentType);
+        searchBuilder.setQuery(query);
+        searchBuilder.setFetchSource(fieldsToInclude, fieldsToExclude);
+        searchBuilder.setSize(pageSize);
+        if (sortBy != null) {
+            for (SortBuilder<?> sort : sortBy) {
+                searchBuilder.addSort(sort);
+            }
+        }
+        searchBuilder.addSort(SortBuilders.fieldSort("_id"));
+
+        LOGGER.debug(String.format("Streaming documents in index = %s, type = %s", index, documentType));
+
+        return new SearchHitIterator(new SearchHitIterator.PageSource() {
+            private Object[] searchAfter;
+            private boolean lastPage;
+
+            @Override
+            public SearchHit[] nextPage() {
+                if (lastPage) {
+                    return new SearchHit[0];
+                }
+                if (searchAfter != null) {
+                    searchBuilder.searchAfter(searchAfter);
+                }
+                SearchHit[] hits = executeESRequest(searchBuilder).getHits().getHits();
+                lastPage = hits.length < pageSize;
+                if (hits.length > 0) {
+                    searchAfter = hits[hits.length - 1].getSortValues();
+                }
+                return hits;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    /**
+     * Iterates every hit of {@code query}, {@code pageSize} at a time, in index order through a scroll context kept
+     * alive for {@code keepAlive} between pages. The hits are those of the index as it was when the iteration started.
+     * Closing the iterator clears the scroll.
+     */
+    public SearchHitIterator scrollDocuments(String index, String documentType, QueryBuilder query, int pageSize,
+                                             TimeValue keepAlive, String[] fieldsToInclude, String[] fieldsToExclude) {
+        SearchRequestBuilder searchBuilder = elasticsearchClient.prepareSearch(index);
+        searchBuilder.setTypes(documentType);
+        searchBuilder.setQuery(query);
+        searchBuilder.setFetchSource(fieldsToInclude, fieldsToExclude);
+        searchBuilder.setSize(pageSize);
+        searchBuilder.addSort(SortBuilders.fieldSort("_doc"));
+        searchBuilder.setScroll(keepAlive);
+
+        LOGGER.debug(String.format("Scrolling documents in index = %s, type = %s", index, documentType));
+
+        return new SearchHitIterator(new SearchHitIterator.PageSource() {
+            private String scrollId;
+
+            @Override
+            public SearchHit[] nextPage() {
+                SearchResponse response = scrollId == null
+                        ? executeESRequest(searchBuilder)
+                        : executeESRequest(elasticsearchClient.prepareSearchScroll(scrollId).setScroll(keepAlive));
+                scrollId = response.getScrollId();
+                return response.getHits().getHits();
+            }
+
+            @Override
+            public void close() {
+                if (scrollId != null) {
+                    try {
+                        elasticsearchClient.prepareClearScroll().addScrollId(scrollId).execute().actionGet();
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not clear scroll, it will expire after {}", keepAlive, e);
+                    }
+                    scrollId = null;
+                }
+            }
+        });
+    }
+
     public boolean deleteDocument(String index, String documentType, String id) {
-        DeleteResponse deleteResponse = executeESRequest(buildDeleteRequest(index, documentType, id));
-        return deleteResponse.isFragment();
+        try {
+            DeleteResponse deleteResponse = executeESRequest(buildDeleteRequest(index, documentType, id));
+            return deleteResponse.isFragment();
+        } finally {
+            searchCache.written(index);
+        }
     }
 
     public BulkResponse doBulkProcessing(BulkRequestBuilder bulkRequestBuilder) {
-        return executeESRequest(bulkRequestBuilder);
+        try {
+            return executeESRequest(bulkRequestBuilder);
+        } finally {
+            written(bulkRequestBuilder.request());
+        }
+    }
+
+    /**
+     * Invalidates the cached searches of the indices {@code bulkRequest} wrote to. Bulks sent around the service, such
+     * as those of {@link BulkIndexer}, call this once they completed.
+     */
+    void written(BulkRequest bulkRequest) {
+        if (bulkRequest == null || !searchCache.isEnabled()) {
+            return;
+        }
+        Set<String> indices = new HashSet<>();
+        for (DocWriteRequest request : bulkRequest.requests()) {
+            if (indices.add(request.index())) {
+                searchCache.written(request.index());
+            }
+        }
+    }
+
+    /**
+     * The cache key of a search, or null when its results are not to be cached.
+     */
+    private SearchSpec cacheableSearch(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
+                                       int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
+                                       boolean fetchSource) {
+        if (!searchCache.isEnabled() || index == null) {
+            return null;
+        }
+        SearchSpec search = new SearchSpec.Builder().index(index).documentType(documentType).query(query).sortBy(sortBy)
+                .offset(offset).limit(limit).fieldsToInclude(fieldsToInclude).fieldsToExclude(fieldsToExclude)
+                .fetchSource(fetchSource).build();
+        return searchCache.accepts(search) ? search : null;
     }
 
     private <T extends ActionResponse> T executeESRequest(ActionRequestBuilder<?, T, ?> requestBuilder) {
@@ -168,6 +508,77 @@ public class ElasticSearchService implements Managed {
         }
     }
 
+    private <T extends ActionResponse> CompletableFuture<T> executeESRequestAsync(ActionRequestBuilder<?, T, ?> requestBuilder, TimeValue timeout) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            requestBuilder.execute(ActionListener.wrap(future::complete,
+                    e -> future.completeExceptionally(new RuntimeException("ElasticSearchException: ", e))));
+        } catch (Exception e) {
+            future.completeExceptionally(new RuntimeException("ElasticSearchException: ", e));
+        }
+        if (timeout != null && !future.isDone()) {
+            ScheduledFuture<?> expiry = timeoutScheduler.schedule(() -> future.completeExceptionally(
+                    new RuntimeException("ElasticSearchException: no response within " + timeout, new TimeoutException())),
+                    timeout.millis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((response, failure) -> expiry.cancel(false));
+        }
+        return future;
+    }
+
+    private MultiSearchRequestBuilder buildMultiSearchRequest(List<SearchSpec> searches) {
+        MultiSearchRequestBuilder multiSearchBuilder = elasticsearchClient.prepareMultiSearch();
+        for (SearchSpec search : searches) {
+            multiSearchBuilder.add(buildSearchRequest(search.getIndex(), search.getDocumentType(), search.getQuery(),
+                    search.getSortBy(), search.getOffset(), search.getLimit(), search.getFieldsToInclude(),
+                    search.getFieldsToExclude(), search.isFetchSource()));
+        }
+        return multiSearchBuilder;
+    }
+
+    static Map<String, DocumentResult> documentResults(MultiGetResponse multiGetResponse) {
+        Map<String, DocumentResult> documents = new LinkedHashMap<>();
+        for (MultiGetItemResponse item : multiGetResponse.getResponses()) {
+            if (item.isFailed()) {
+                LOGGER.warn(String.format("Get Document failed index=%s, id=%s: %s", item.getIndex(), item.getId(),
+                        item.getFailure().getMessage()));
+                documents.put(item.getId(), new DocumentResult(null,
+                        new RuntimeException("ElasticSearchException: ", item.getFailure().getFailure())));
+            } else {
+                documents.put(item.getId(), new DocumentResult(item.getResponse(), null));
+            }
+        }
+        return documents;
+    }
+
+    static List<SearchResult> searchResults(MultiSearchResponse multiSearchResponse) {
+        List<SearchResult> results = new ArrayList<>(multiSearchResponse.getResponses().length);
+        for (MultiSearchResponse.Item item : multiSearchResponse.getResponses()) {
+            results.add(item.isFailure()
+                    ? new SearchResult(null, new RuntimeException("ElasticSearchException: ", item.getFailure()))
+                    : new SearchResult(item.getResponse().getHits(), null));
+        }
+        return results;
+    }
+
+    private SearchRequestBuilder buildSearchRequest(String index, String documentType, QueryBuilder query, SortBuilder sortBy,
+                                                    int offset, int limit, String[] fieldsToInclude, String[] fieldsToExclude,
+                                                    boolean fetchSource) {
+        SearchRequestBuilder searchBuilder = elasticsearchClient.prepareSearch(index);
+        searchBuilder.setTypes(documentType);
+        searchBuilder.setQuery(query);
+        searchBuilder.setFetchSource(fetchSource);
+        searchBuilder.setFetchSource(fieldsToInclude, fieldsToExclude);
+
+        if(sortBy != null) {
+            searchBuilder.addSort(sortBy);
+        }
+        searchBuilder.setFrom(offset);
+        if(limit > 0) {
+            searchBuilder.setSize(limit);
+        }
+        return searchBuilder;
+    }
+
     public DeleteRequestBuilder buildDeleteRequest(String index, String documentType, String id) {
         return elasticsearchClient.prepareDelete(index, documentType, id);
     }
@@ -201,4 +612,27 @@ public class ElasticSearchService implements Managed {
         return indexRequestBuilder;
     }
 
+    public IndexRequestBuilder buildIndexRequest(String index, String documentType, String id, BytesReference source,
+                                                 XContentType contentType, boolean refreshIndex) {
+        if (source == null || source.length() == 0) {
+            throw new IllegalArgumentException("ElasticSearchException: Document body required");
+        }
+        IndexRequestBuilder indexRequestBuilder = elasticsearchClient.prepareIndex(index, documentType, id);
+        indexRequestBuilder.setSource(source, contentType);
+        return indexRequestBuilder;
+    }
+
+    public IndexRequestBuilder buildIndexRequest(String index, String documentType, String id, byte[] source,
+                                                 XContentType contentType, boolean refreshIndex) {
+        return buildIndexRequest(index, documentType, id, source == null ? null : new BytesArray(source), contentType, refreshIndex);
+    }
+
+    public IndexRequestBuilder buildIndexRequest(String index, String documentType, String id, XContentBuilder source,
+                                                 boolean refreshIndex) {
+        if (source == null) {
+            throw new IllegalArgumentException("ElasticSearchException: Document body required");
+        }
+        return buildIndexRequest(index, documentType, id, source.bytes(), source.contentType(), refreshIndex);
+    }
+
 }
@@ -0,0 +1,125 @@
+package com.intrence.core.elasticsearch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.intrence.models.model.Product;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Serializes products to index request sources in JSON, SMILE or CBOR, with the ObjectMapper's serializers, so every
+ * format carries the same document as {@code objectMapper.writeValueAsString(product)}.
+ * <p>
+ * A product is written straight to bytes in a buffer kept per thread, and the source is a single copy of exactly its
+ * size, which it has to be since index requests are sent after the call returns. Unlike going through a String, no
+ * char[] of the document is built and then encoded again. SMILE and CBOR sources are smaller than JSON and cheaper for
+ * the cluster to parse.
+ */
+public class ProductDocumentSerializer {
+
+    // buffers that grew past this (a single huge document) are dropped rather than kept per thread
+    private static final int MAX_RETAINED_BUFFER_BYTES = 64 * 1024;
+
+    private static final ThreadLocal<BufferOutputStream> BUFFERS = ThreadLocal.withInitial(BufferOutputStream::new);
+
+    private final ObjectWriter writer;
+    private final JsonFactory factory;
+    private final XContentType contentType;
+
+    public ProductDocumentSerializer(ObjectMapper objectMapper, XContentType contentType) {
+        // Jackson writes UUIDs as native binary where the format has it, as SMILE and CBOR do; the mapping wants text
+        this.writer = objectMapper.copy()
+                .registerModule(new SimpleModule().addSerializer(UUID.class, ToStringSerializer.instance))
+                .writerFor(Product.class);
+        this.factory = factoryFor(objectMapper, contentType);
+        this.contentType = contentType;
+    }
+
+    private static JsonFactory factoryFor(ObjectMapper objectMapper, XContentType contentType) {
+        switch (contentType) {
+            case JSON:
+                return objectMapper.getFactory();
+            case SMILE:
+                // as the cluster's own SMILE xcontent writes it
+                return new SmileFactory().configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, false);
+            case CBOR:
+                return new CBORFactory();
+            default:
+                throw new IllegalArgumentException("ElasticSearchException: Unsupported document content type " + contentType);
+        }
+    }
+
+    public XContentType getContentType() {
+        return contentType;
+    }
+
+    public BytesReference serialize(Product product) {
+        BufferOutputStream buffer = BUFFERS.get();
+        try {
+            try (JsonGenerator generator = factory.createGenerator(buffer)) {
+                writer.writeValue(generator, product);
+            }
+            return new BytesArray(buffer.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException("ElasticSearchException: could not serialize product " + (product == null ? null : product.getUuid()), e);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * An unsynchronized, reusable ByteArrayOutputStream. Closing it is a no-op so that Jackson's auto-close leaves it
+     * usable.
+     */
+    private static class BufferOutputStream extends OutputStream {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(length + 1);
+            bytes[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int len) {
+            ensureCapacity(length + len);
+            System.arraycopy(b, offset, bytes, length, len);
+            length += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        void reset() {
+            if (bytes.length > MAX_RETAINED_BUFFER_BYTES) {
+                bytes = new byte[1024];
+            }
+            length = 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
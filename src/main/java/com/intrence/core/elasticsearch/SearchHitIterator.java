@@ -0,0 +1,74 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.search.SearchHit;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates every hit of a search, fetching one page at a time as the previous one is consumed. Close it when done,
+ * including when stopping early: a scroll holds a search context on the cluster until it is cleared or times out.
+ *
+ * @see ElasticSearchService#streamDocuments
+ * @see ElasticSearchService#scrollDocuments
+ */
+public class SearchHitIterator implements Iterator<SearchHit>, Closeable {
+
+    private static final SearchHit[] NO_HITS = new SearchHit[0];
+
+    private final PageSource pages;
+    private SearchHit[] page = NO_HITS;
+    private int position;
+    private boolean exhausted;
+    private boolean closed;
+
+    SearchHitIterator(PageSource pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position >= page.length && !exhausted) {
+            page = pages.nextPage();
+            position = 0;
+            if (page.length == 0) {
+                close();
+            }
+        }
+        return position < page.length;
+    }
+
+    @Override
+    public SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page[position++];
+    }
+
+    /**
+     * Ends the iteration, dropping any hits fetched but not consumed yet.
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        page = NO_HITS;
+        position = 0;
+        if (!closed) {
+            closed = true;
+            pages.close();
+        }
+    }
+
+    /**
+     * The pages of one search; an empty page marks the end.
+     */
+    interface PageSource extends Closeable {
+
+        SearchHit[] nextPage();
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.search.SearchHits;
+
+/**
+ * The outcome of one search of a {@link ElasticSearchService#multiSearch}: its hits, or why it failed. A failed
+ * search does not fail the others.
+ */
+public class SearchResult {
+
+    private final SearchHits hits;
+    private final Exception failure;
+
+    SearchResult(SearchHits hits, Exception failure) {
+        this.hits = hits;
+        this.failure = failure;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return the hits, or null when the search failed
+     */
+    public SearchHits getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the failure, or null when the search succeeded
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,180 @@
+package com.intrence.core.elasticsearch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.elasticsearch.search.SearchHits;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of {@link ElasticSearchService#searchDocuments} searches, keyed by their {@link SearchSpec}.
+ * <p>
+ * Every index has a write generation, which {@link ElasticSearchService} advances whenever one of its upserts, deletes
+ * or bulks against the index completes. A result is only served while the generation of its index is the one it was
+ * searched at, so a write through the service invalidates every cached search of that index. Since a completed write
+ * only shows in searches after the next index refresh, results of searches started within {@code refreshIntervalMillis}
+ * of a write are not cached at all.
+ * <p>
+ * Writes that bypass the service, such as those of other instances, are not seen; {@code maxStalenessMillis} bounds
+ * how long a result is served after it was searched. Generations are kept by index name as given, so searches and
+ * writes have to name an index the same way: searches of several indices or of a wildcard pattern are not cached.
+ * <p>
+ * A cached result is the same SearchHits instance for every caller that gets it, concurrently or not. Callers must
+ * treat it, and the hits in it, as read-only.
+ */
+public class SearchResultCache {
+
+    private final Cache<SearchSpec, Entry> cache;
+    private final ConcurrentMap<String, IndexGeneration> generations = new ConcurrentHashMap<>();
+    private final long refreshIntervalNanos;
+    private final Ticker ticker;
+    private final Meter hits;
+    private final Meter misses;
+
+    public SearchResultCache(long maxSize, long maxStalenessMillis, long refreshIntervalMillis, MetricRegistry metrics) {
+        this(maxSize, maxStalenessMillis, refreshIntervalMillis, metrics, Ticker.systemTicker());
+    }
+
+    SearchResultCache(long maxSize, long maxStalenessMillis, long refreshIntervalMillis, MetricRegistry metrics, Ticker ticker) {
+        this.cache = maxSize > 0
+                ? CacheBuilder.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(maxStalenessMillis, TimeUnit.MILLISECONDS)
+                        .ticker(ticker)
+                        .recordStats()
+                        .<SearchSpec, Entry>build()
+                : null;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+        this.ticker = ticker;
+        this.hits = new Meter();
+        this.misses = new Meter();
+
+        if (cache != null) {
+            metrics.register(MetricRegistry.name(ElasticSearchService.class, "search-cache", "hits"), hits);
+            metrics.register(MetricRegistry.name(ElasticSearchService.class, "search-cache", "misses"), misses);
+            metrics.register(MetricRegistry.name(ElasticSearchService.class, "search-cache", "hit-rate"), new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+                }
+            });
+            metrics.register(MetricRegistry.name(ElasticSearchService.class, "search-cache", "evictions"),
+                    (Gauge<Long>) () -> cache.stats().evictionCount());
+            metrics.register(MetricRegistry.name(ElasticSearchService.class, "search-cache", "size"), (Gauge<Long>) cache::size);
+        }
+    }
+
+    /**
+     * A cache that caches nothing.
+     */
+    public static SearchResultCache disabled() {
+        return new SearchResultCache(0, 0, 0, null);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Whether results of {@code search} may be cached at all.
+     */
+    boolean accepts(SearchSpec search) {
+        return cache != null && search.getIndex().indexOf(',') < 0 && search.getIndex().indexOf('*') < 0;
+    }
+
+    /**
+     * The current write generation of {@code index} and the time the search starts at. Take it before searching and
+     * hand it to {@link #put}.
+     */
+    SearchStart searchStart(String index) {
+        return new SearchStart(generationOf(index).generation.get(), ticker.read());
+    }
+
+    /**
+     * The cached result of {@code search}, or null when there is none still valid. The result is shared and must not be
+     * modified.
+     */
+    SearchHits get(SearchSpec search) {
+        Entry entry = cache.getIfPresent(search);
+        if (entry == null || entry.generation != generationOf(search.getIndex()).generation.get()) {
+            misses.mark();
+            return null;
+        }
+        hits.mark();
+        return entry.hits;
+    }
+
+    /**
+     * Caches the result of {@code search}, started at {@code start}, unless the index has been written since or was
+     * written so shortly before the search started that the search may not have seen the write.
+     */
+    void put(SearchSpec search, SearchStart start, SearchHits searchHits) {
+        IndexGeneration index = generationOf(search.getIndex());
+        if (index.generation.get() == start.generation && start.startNanos - index.lastWriteNanos >= refreshIntervalNanos) {
+            cache.put(search, new Entry(start.generation, searchHits));
+        }
+    }
+
+    /**
+     * Invalidates the cached searches of {@code index}. Called once a write to it completed, successfully or not.
+     */
+    void written(String index) {
+        if (cache == null || index == null) {
+            return;
+        }
+        IndexGeneration generation = generationOf(index);
+        generation.lastWriteNanos = ticker.read();
+        generation.generation.incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private IndexGeneration generationOf(String index) {
+        IndexGeneration generation = generations.get(index);
+        if (generation == null) {
+            generation = generations.computeIfAbsent(index, name -> new IndexGeneration(ticker.read() - refreshIntervalNanos));
+        }
+        return generation;
+    }
+
+    private static class IndexGeneration {
+        private final AtomicLong generation = new AtomicLong();
+        private volatile long lastWriteNanos;
+
+        private IndexGeneration(long lastWriteNanos) {
+            this.lastWriteNanos = lastWriteNanos;
+        }
+    }
+
+    static class SearchStart {
+        private final long generation;
+        private final long startNanos;
+
+        private SearchStart(long generation, long startNanos) {
+            this.generation = generation;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static class Entry {
+        private final long generation;
+        private final SearchHits hits;
+
+        private Entry(long generation, SearchHits hits) {
+            this.generation = generation;
+            this.hits = hits;
+        }
+    }
+}
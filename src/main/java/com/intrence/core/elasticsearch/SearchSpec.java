@@ -0,0 +1,176 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * One search, as {@link ElasticSearchService#searchDocuments} takes it, so that several can be sent together (see
+ * {@link ElasticSearchService#multiSearch}). Specs with equal fields are equal, and specs are used as
+ * {@link SearchResultCache} keys.
+ * <p>
+ * The field arrays are copied, but the query and sort builders are kept as given: they must not be modified once the
+ * spec is built, or the spec's equality and hash code change under it.
+ */
+public class SearchSpec {
+
+    private final String index;
+    private final String documentType;
+    private final QueryBuilder query;
+    private final SortBuilder sortBy;
+    private final int offset;
+    private final int limit;
+    private final String[] fieldsToInclude;
+    private final String[] fieldsToExclude;
+    private final boolean fetchSource;
+
+    private SearchSpec(Builder builder) {
+        this.index = builder.index;
+        this.documentType = builder.documentType;
+        this.query = builder.query;
+        this.sortBy = builder.sortBy;
+        this.offset = builder.offset;
+        this.limit = builder.limit;
+        this.fieldsToInclude = builder.fieldsToInclude == null ? null : builder.fieldsToInclude.clone();
+        this.fieldsToExclude = builder.fieldsToExclude == null ? null : builder.fieldsToExclude.clone();
+        this.fetchSource = builder.fetchSource;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+    public QueryBuilder getQuery() {
+        return query;
+    }
+
+    public SortBuilder getSortBy() {
+        return sortBy;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String[] getFieldsToInclude() {
+        return fieldsToInclude == null ? null : fieldsToInclude.clone();
+    }
+
+    public String[] getFieldsToExclude() {
+        return fieldsToExclude == null ? null : fieldsToExclude.clone();
+    }
+
+    public boolean isFetchSource() {
+        return fetchSource;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SearchSpec that = (SearchSpec) o;
+        return offset == that.offset
+                && limit == that.limit
+                && fetchSource == that.fetchSource
+                && Objects.equals(index, that.index)
+                && Objects.equals(documentType, that.documentType)
+                && Objects.equals(query, that.query)
+                && Objects.equals(sortBy, that.sortBy)
+                && Arrays.equals(fieldsToInclude, that.fieldsToInclude)
+                && Arrays.equals(fieldsToExclude, that.fieldsToExclude);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(index, documentType, query, sortBy, offset, limit, fetchSource);
+        result = 31 * result + Arrays.hashCode(fieldsToInclude);
+        result = 31 * result + Arrays.hashCode(fieldsToExclude);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchSpec{index=" + index + ", documentType=" + documentType + ", offset=" + offset + ", limit=" + limit + "}";
+    }
+
+    public static class Builder {
+        private String index;
+        private String documentType;
+        private QueryBuilder query;
+        private SortBuilder sortBy;
+        private int offset;
+        private int limit;
+        private String[] fieldsToInclude;
+        private String[] fieldsToExclude;
+        private boolean fetchSource = true;
+
+        public Builder index(String index) {
+            this.index = index;
+            return this;
+        }
+
+        public Builder documentType(String documentType) {
+            this.documentType = documentType;
+            return this;
+        }
+
+        public Builder query(QueryBuilder query) {
+            this.query = query;
+            return this;
+        }
+
+        public Builder sortBy(SortBuilder sortBy) {
+            this.sortBy = sortBy;
+            return this;
+        }
+
+        public Builder offset(int offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        /**
+         * The number of hits to return; the index default when zero.
+         */
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder fieldsToInclude(String... fieldsToInclude) {
+            this.fieldsToInclude = fieldsToInclude;
+            return this;
+        }
+
+        public Builder fieldsToExclude(String... fieldsToExclude) {
+            this.fieldsToExclude = fieldsToExclude;
+            return this;
+        }
+
+        public Builder fetchSource(boolean fetchSource) {
+            this.fetchSource = fetchSource;
+            return this;
+        }
+
+        public SearchSpec build() {
+            if (index == null) {
+                throw new IllegalArgumentException("ElasticSearchException: Search index required");
+            }
+            return new SearchSpec(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.intrence.core.filter;
+
+import com.intrence.core.concurrent.Deadline;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Binds a {@link Deadline} to the thread handling each request: the caller's budget from the
+ * {@value #REQUEST_TIMEOUT_HEADER} header, capped at {@code maxTimeoutMillis}, which is also the budget of requests
+ * without the header. Register it with {@code environment.jersey().register(new DeadlineFilter(...))}.
+ */
+@Provider
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private static final String SCOPE_PROPERTY = DeadlineFilter.class.getName() + ".scope";
+
+    private final long maxTimeoutMillis;
+
+    public DeadlineFilter(long maxTimeoutMillis) {
+        this.maxTimeoutMillis = maxTimeoutMillis;
+    }
+
+    /**
+     * The deadline replaces whatever is bound to the thread: a request starts with a fresh budget even on a thread
+     * where an earlier request's response filter never ran.
+     */
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(SCOPE_PROPERTY, Deadline.bind(Deadline.after(timeoutMillis(request.getHeaderString(REQUEST_TIMEOUT_HEADER)))));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        final Object scope = request.getProperty(SCOPE_PROPERTY);
+        if (scope != null) {
+            request.removeProperty(SCOPE_PROPERTY);
+            ((Deadline.Scope) scope).close();
+        }
+    }
+
+    long timeoutMillis(String header) {
+        if (header == null) {
+            return maxTimeoutMillis;
+        }
+        try {
+            final long requested = Long.parseLong(header.trim());
+            return requested > 0 ? Math.min(requested, maxTimeoutMillis) : maxTimeoutMillis;
+        } catch (NumberFormatException e) {
+            return maxTimeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.intrence.core.filter;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.intrence.core.persistence.jdbi.QueryAccounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Accounts for the statements each request executes (see {@link QueryAccounting}), reporting them in the
+ * {@value #STATEMENTS_HEADER} and {@value #DB_TIME_HEADER} response headers and in the {@code db.request.statements}
+ * and {@code db.request.time-ms} histograms. Requests where one DAO method issued more than {@code repeatThreshold}
+ * statements are logged and counted in the {@code db.request.repeated-statements} meter. Register it with
+ * {@code environment.jersey().register(new QueryAccountingFilter(...))}.
+ */
+@Provider
+public class QueryAccountingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryAccountingFilter.class);
+
+    public static final String STATEMENTS_HEADER = "X-DB-Statements";
+    public static final String DB_TIME_HEADER = "X-DB-Time-Ms";
+
+    private static final String ACCOUNTING_PROPERTY = QueryAccountingFilter.class.getName() + ".accounting";
+
+    private final int repeatThreshold;
+    private final Histogram statements;
+    private final Histogram elapsedMillis;
+    private final Meter repeatedStatements;
+
+    public QueryAccountingFilter(MetricRegistry metrics, int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+        this.statements = metrics.histogram(MetricRegistry.name("db", "request", "statements"));
+        this.elapsedMillis = metrics.histogram(MetricRegistry.name("db", "request", "time-ms"));
+        this.repeatedStatements = metrics.meter(MetricRegistry.name("db", "request", "repeated-statements"));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        // drop anything left bound by an earlier request on this thread whose response filter never ran
+        QueryAccounting.restore(null);
+        final String name = request.getMethod() + " /" + request.getUriInfo().getPath();
+        request.setProperty(ACCOUNTING_PROPERTY, QueryAccounting.start(name, repeatThreshold));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        final Object property = request.getProperty(ACCOUNTING_PROPERTY);
+        if (property == null) {
+            return;
+        }
+        request.removeProperty(ACCOUNTING_PROPERTY);
+        final QueryAccounting accounting = (QueryAccounting) property;
+        accounting.close();
+
+        response.getHeaders().putSingle(STATEMENTS_HEADER, accounting.getStatements());
+        response.getHeaders().putSingle(DB_TIME_HEADER, accounting.getElapsedMillis());
+        statements.update(accounting.getStatements());
+        elapsedMillis.update(accounting.getElapsedMillis());
+        if (accounting.getRepeatedMethods() > 0) {
+            repeatedStatements.mark();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{}", accounting);
+        }
+    }
+}
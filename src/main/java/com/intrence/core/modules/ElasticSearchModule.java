@@ -3,10 +3,19 @@
  */
 package com.intrence.core.modules;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.intrence.core.elasticsearch.AsyncElasticSearchService;
+import com.intrence.core.elasticsearch.BulkIndexer;
 import com.intrence.core.elasticsearch.ElasticSearchConfiguration;
 import com.intrence.core.elasticsearch.ElasticSearchService;
+import com.intrence.core.elasticsearch.ProductDocumentSerializer;
+import com.intrence.core.elasticsearch.SearchResultCache;
 import io.dropwizard.setup.Environment;
+import org.elasticsearch.common.unit.TimeValue;
 
 public class ElasticSearchModule extends AbstractModule {
 
@@ -23,4 +32,37 @@ public class ElasticSearchModule extends AbstractModule {
         bind(ElasticSearchConfiguration.class).toInstance(conf);
         bind(ElasticSearchService.class).asEagerSingleton();
     }
+
+    @Singleton
+    @Provides
+    public SearchResultCache providesSearchResultCache() {
+        if (conf.getSearchCacheMaxSize() <= 0) {
+            return SearchResultCache.disabled();
+        }
+        return new SearchResultCache(conf.getSearchCacheMaxSize(), conf.getSearchCacheMaxStalenessMillis(),
+                conf.getSearchCacheRefreshIntervalMillis(), env == null ? new MetricRegistry() : env.metrics());
+    }
+
+    @Singleton
+    @Provides
+    public ProductDocumentSerializer providesProductDocumentSerializer(ObjectMapper objectMapper) {
+        return new ProductDocumentSerializer(objectMapper, conf.getDocumentContentType());
+    }
+
+    @Singleton
+    @Provides
+    public AsyncElasticSearchService providesAsyncElasticSearchService(ElasticSearchService elasticSearchService) {
+        return new AsyncElasticSearchService(elasticSearchService,
+                conf.getAsyncRequestTimeoutMillis() > 0 ? TimeValue.timeValueMillis(conf.getAsyncRequestTimeoutMillis()) : null);
+    }
+
+    @Singleton
+    @Provides
+    public BulkIndexer providesBulkIndexer(ElasticSearchService elasticSearchService) {
+        BulkIndexer bulkIndexer = new BulkIndexer(elasticSearchService, conf, env == null ? new MetricRegistry() : env.metrics());
+        if (env != null) {
+            env.lifecycle().manage(bulkIndexer);
+        }
+        return bulkIndexer;
+    }
 }
@@ -3,24 +3,73 @@
  */
 package com.intrence.core.modules;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.intrence.core.concurrent.BlockingCallExecutor;
+import com.intrence.core.persistence.async.AsyncProductDao;
+import com.intrence.core.persistence.async.AsyncUserDao;
+import com.intrence.core.persistence.bulk.ProductBulkLoader;
+import com.intrence.core.persistence.cache.CachingProductDao;
 import com.intrence.core.persistence.common.CollectionArgumentFactory;
 import com.intrence.core.persistence.common.JsonArgumentFactory;
 import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.core.persistence.dao.UserDao;
+import com.intrence.core.persistence.jdbi.InstrumentedSqlObject;
 import com.intrence.core.persistence.jdbi.JDBI;
+import com.intrence.core.persistence.jdbi.SlowQueryLog;
+import com.intrence.core.persistence.jdbi.TimeoutStatementBuilder;
+import com.intrence.core.persistence.limit.AdaptiveConcurrencyLimiter;
+import com.intrence.core.persistence.limit.LimitedSqlObject;
+import com.intrence.core.persistence.limit.Priority;
+import com.intrence.core.persistence.loader.ProductBatchLoader;
 import com.intrence.core.persistence.mapper.ProductMapper;
+import com.intrence.core.persistence.postgres.PoolSaturationMonitor;
 import com.intrence.core.persistence.postgres.PostgresConfig;
 import com.intrence.core.persistence.postgres.PostgresConfigProvider;
+import com.intrence.core.persistence.replica.ReplicaLagMonitor;
+import com.intrence.core.persistence.replica.ReplicaRouter;
+import com.intrence.core.persistence.scan.ProductScanner;
+import com.intrence.core.tasks.SlowQueryPlansTask;
+import com.zaxxer.hikari.HikariDataSource;
 import io.dropwizard.jdbi.args.JodaDateTimeArgumentFactory;
 import io.dropwizard.jdbi.args.JodaDateTimeMapper;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
 import org.skife.jdbi.v2.DBI;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 public class PostgresModule extends AbstractModule {
 
+    private final Environment env;
+    private final MetricRegistry metrics;
+    private final HealthCheckRegistry healthChecks;
+    private DataSource transactionDataSource;
+    private DataSource sessionDataSource;
+    private List<DataSource> replicaDataSources;
+    private ReplicaLagMonitor replicaLagMonitor;
+    private BlockingCallExecutor daoExecutor;
+    private AdaptiveConcurrencyLimiter transactionPoolLimiter;
+    private SlowQueryLog slowQueryLog;
+
+    public PostgresModule() {
+        this(null);
+    }
+
+    public PostgresModule(Environment env) {
+        this.env = env;
+        this.metrics = env == null ? new MetricRegistry() : env.metrics();
+        this.healthChecks = env == null ? new HealthCheckRegistry() : env.healthChecks();
+    }
+
     @Override
     protected void configure() {
         bind(PostgresConfig.class).toProvider(PostgresConfigProvider.class);
@@ -35,22 +84,210 @@ public class PostgresModule extends AbstractModule {
                                          JodaDateTimeArgumentFactory jodaDateTimeArgumentFactory,
                                          JodaDateTimeMapper jodaDateTimeMapper,
                                          ProductMapper productMapper) {
-        return buildProductDao(postgresConfig.buildTransactionPooledDataSource(), jsonArgumentFactory, collectionArgumentFactory, jodaDateTimeArgumentFactory, jodaDateTimeMapper, productMapper);
+        RoutedDao<ProductDao> productDao = buildRoutedDao(ProductDao.class, Priority.HIGH, postgresConfig,
+                dataSource -> buildDbi(dataSource, slowQueryLog(postgresConfig), jsonArgumentFactory, collectionArgumentFactory, jodaDateTimeArgumentFactory, jodaDateTimeMapper, productMapper));
+        if (postgresConfig.getProductCacheMaxSize() > 0) {
+            // misses load from the primary, so a product read right after its write cannot cache a lagging replica's row
+            return new CachingProductDao(productDao.routed, productDao.primary, postgresConfig.getProductCacheMaxSize(),
+                    postgresConfig.getProductCacheTtlSeconds(), metrics);
+        }
+        return productDao.routed;
+    }
+
+    @Singleton
+    @Provides
+    public UserDao providesUserDao(PostgresConfig postgresConfig,
+                                   JsonArgumentFactory jsonArgumentFactory,
+                                   CollectionArgumentFactory collectionArgumentFactory,
+                                   JodaDateTimeArgumentFactory jodaDateTimeArgumentFactory,
+                                   JodaDateTimeMapper jodaDateTimeMapper,
+                                   ProductMapper productMapper) {
+        // product writes keep the full limit; user calls are shed with the listing reads
+        return buildRoutedDao(UserDao.class, Priority.LOW, postgresConfig,
+                dataSource -> buildDbi(dataSource, slowQueryLog(postgresConfig), jsonArgumentFactory, collectionArgumentFactory, jodaDateTimeArgumentFactory, jodaDateTimeMapper, productMapper)).routed;
+    }
+
+    @Singleton
+    @Provides
+    public AsyncProductDao providesAsyncProductDao(PostgresConfig postgresConfig, ProductDao productDao) {
+        return new AsyncProductDao(productDao, daoExecutor(postgresConfig));
+    }
+
+    @Singleton
+    @Provides
+    public AsyncUserDao providesAsyncUserDao(PostgresConfig postgresConfig, UserDao userDao) {
+        return new AsyncUserDao(userDao, daoExecutor(postgresConfig));
+    }
+
+    @Singleton
+    @Provides
+    public ProductBatchLoader providesProductBatchLoader(ProductDao productDao) {
+        ProductBatchLoader productBatchLoader = new ProductBatchLoader(productDao);
+        if (env != null) {
+            env.lifecycle().manage(productBatchLoader);
+        }
+        return productBatchLoader;
+    }
+
+    @Singleton
+    @Provides
+    public ProductScanner providesProductScanner(PostgresConfig postgresConfig,
+                                                 JsonArgumentFactory jsonArgumentFactory,
+                                                 CollectionArgumentFactory collectionArgumentFactory,
+                                                 JodaDateTimeArgumentFactory jodaDateTimeArgumentFactory,
+                                                 JodaDateTimeMapper jodaDateTimeMapper,
+                                                 ProductMapper productMapper) {
+        // scans are slow by design, and explaining one would scan the table again
+        return new ProductScanner(buildDbi(sessionDataSource(postgresConfig), null, jsonArgumentFactory, collectionArgumentFactory, jodaDateTimeArgumentFactory, jodaDateTimeMapper, productMapper));
+    }
+
+    @Singleton
+    @Provides
+    public ProductBulkLoader providesProductBulkLoader(PostgresConfig postgresConfig, ObjectMapper objectMapper, ProductDao productDao) {
+        // a load rewrites a whole source, so the product cache is dropped rather than tracking every merged or pruned id
+        Runnable afterLoad = productDao instanceof CachingProductDao ? ((CachingProductDao) productDao)::invalidateAll : () -> { };
+        return new ProductBulkLoader(sessionDataSource(postgresConfig), objectMapper, afterLoad);
+    }
+
+    /**
+     * One executor for the async DAO facades, allowing as many calls in flight as the transaction pool has connections.
+     */
+    private synchronized BlockingCallExecutor daoExecutor(PostgresConfig postgresConfig) {
+        if (daoExecutor == null) {
+            daoExecutor = new BlockingCallExecutor("postgres-dao", postgresConfig.getTransactionPoolSize(), metrics);
+            if (env != null) {
+                env.lifecycle().manage(daoExecutor);
+            }
+        }
+        return daoExecutor;
+    }
+
+    /**
+     * An instrumented DAO on the transaction pool, behind the pool's concurrency limiter at {@code priority}, with its
+     * {@link com.intrence.core.persistence.annotation.ReplicaEligible} methods routed to the replicas when there are
+     * any. Its statements are subject to the configured statement timeouts. The primary-only DAO is returned alongside.
+     */
+    private <T> RoutedDao<T> buildRoutedDao(Class<T> daoType, Priority priority, PostgresConfig postgresConfig, Function<DataSource, DBI> dbiFactory) {
+        final TimeoutStatementBuilder statementBuilder = new TimeoutStatementBuilder(postgresConfig.getDefaultStatementTimeoutMillis(), postgresConfig.getStatementTimeouts());
+        final Function<DataSource, DBI> timedDbiFactory = dataSource -> {
+            DBI dbi = dbiFactory.apply(dataSource);
+            dbi.setStatementBuilderFactory(connection -> statementBuilder);
+            return dbi;
+        };
+        T primary = InstrumentedSqlObject.wrap(daoType, timedDbiFactory.apply(transactionDataSource(postgresConfig)).onDemand(daoType), metrics);
+        if (postgresConfig.isConcurrencyLimiterEnabled()) {
+            primary = LimitedSqlObject.wrap(daoType, primary, transactionPoolLimiter(postgresConfig), priority);
+        }
+        List<T> replicas = new ArrayList<>();
+        for (DataSource replicaDataSource : replicaDataSources(postgresConfig)) {
+            replicas.add(InstrumentedSqlObject.wrap(daoType, timedDbiFactory.apply(replicaDataSource).onDemand(daoType), metrics));
+        }
+        return new RoutedDao<>(primary, ReplicaRouter.route(daoType, primary, replicas, replicaLagMonitor(postgresConfig)));
+    }
+
+    /**
+     * A DAO routed to the replicas, and the same DAO on the primary only.
+     */
+    private static class RoutedDao<T> {
+        private final T primary;
+        private final T routed;
+
+        private RoutedDao(T primary, T routed) {
+            this.primary = primary;
+            this.routed = routed;
+        }
+    }
+
+    /**
+     * One slow statement log for all DAOs, explaining each sampled statement on the pool that ran it, with the app role, and
+     * exposed as the {@code slow-query-plans} admin task when there is an environment.
+     */
+    private synchronized SlowQueryLog slowQueryLog(PostgresConfig postgresConfig) {
+        if (slowQueryLog == null) {
+            slowQueryLog = new SlowQueryLog(postgresConfig.getSlowQueryThresholdMillis(), postgresConfig.getSlowQueryExplainSampleRate(),
+                    postgresConfig.getSlowQueryPlanCapacity());
+            if (env != null) {
+                env.lifecycle().manage(slowQueryLog);
+                env.admin().addTask(new SlowQueryPlansTask(slowQueryLog));
+            }
+        }
+        return slowQueryLog;
+    }
+
+    private synchronized AdaptiveConcurrencyLimiter transactionPoolLimiter(PostgresConfig postgresConfig) {
+        if (transactionPoolLimiter == null) {
+            transactionPoolLimiter = new AdaptiveConcurrencyLimiter("postgres-transaction-pool.limiter", postgresConfig.getTransactionPoolSize(),
+                    postgresConfig.getConcurrencyLimiterLatencyThresholdMillis(), metrics);
+        }
+        return transactionPoolLimiter;
+    }
+
+    /**
+     * The transaction pool, reporting pool metrics and health checks, and closed with the environment when there is
+     * one. Shared by every provider so each pool is built and instrumented once.
+     */
+    private synchronized DataSource transactionDataSource(PostgresConfig postgresConfig) {
+        if (transactionDataSource == null) {
+            transactionDataSource = monitor(postgresConfig.buildTransactionPooledDataSource(Optional.of(metrics), Optional.of(healthChecks), lifecycle()), postgresConfig);
+        }
+        return transactionDataSource;
+    }
+
+    private synchronized DataSource sessionDataSource(PostgresConfig postgresConfig) {
+        if (sessionDataSource == null) {
+            sessionDataSource = monitor(postgresConfig.buildSessionPooledDataSource(Optional.of(metrics), Optional.of(healthChecks), lifecycle()), postgresConfig);
+        }
+        return sessionDataSource;
+    }
+
+    private synchronized List<DataSource> replicaDataSources(PostgresConfig postgresConfig) {
+        if (replicaDataSources == null) {
+            replicaDataSources = new ArrayList<>();
+            for (DataSource replicaDataSource : postgresConfig.buildReplicaPooledDataSources(Optional.of(metrics), Optional.of(healthChecks), lifecycle())) {
+                replicaDataSources.add(monitor(replicaDataSource, postgresConfig));
+            }
+        }
+        return replicaDataSources;
+    }
+
+    /**
+     * One lag monitor for all replica-routed DAOs, polling from startup when there is no environment to manage it.
+     */
+    private synchronized ReplicaLagMonitor replicaLagMonitor(PostgresConfig postgresConfig) {
+        if (replicaLagMonitor == null) {
+            replicaLagMonitor = new ReplicaLagMonitor(replicaDataSources(postgresConfig), postgresConfig.getReplicaMaxLagMillis(), metrics);
+            if (env != null) {
+                env.lifecycle().manage(replicaLagMonitor);
+            } else {
+                replicaLagMonitor.start();
+            }
+        }
+        return replicaLagMonitor;
+    }
+
+    private DataSource monitor(DataSource dataSource, PostgresConfig postgresConfig) {
+        String poolName = dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getPoolName() : "postgres";
+        return new PoolSaturationMonitor(dataSource, poolName, postgresConfig.getPoolWaitThresholdMillis(), metrics);
+    }
+
+    private Optional<LifecycleEnvironment> lifecycle() {
+        return env == null ? Optional.empty() : Optional.of(env.lifecycle());
     }
 
-    private ProductDao buildProductDao(DataSource dataSource,
-                                       JsonArgumentFactory jsonArgumentFactory,
-                                       CollectionArgumentFactory collectionArgumentFactory,
-                                       JodaDateTimeArgumentFactory jodaDateTimeArgumentFactory,
-                                       JodaDateTimeMapper jodaDateTimeMapper,
-                                       ProductMapper productMapper) {
-        DBI dbi = JDBI.build(dataSource, null);
+    private DBI buildDbi(DataSource dataSource,
+                         SlowQueryLog slowQueryLog,
+                         JsonArgumentFactory jsonArgumentFactory,
+                         CollectionArgumentFactory collectionArgumentFactory,
+                         JodaDateTimeArgumentFactory jodaDateTimeArgumentFactory,
+                         JodaDateTimeMapper jodaDateTimeMapper,
+                         ProductMapper productMapper) {
+        DBI dbi = JDBI.build(dataSource, metrics, slowQueryLog);
         dbi.registerArgumentFactory(jsonArgumentFactory);
         dbi.registerArgumentFactory(collectionArgumentFactory);
         dbi.registerArgumentFactory(jodaDateTimeArgumentFactory);
         dbi.registerColumnMapper(jodaDateTimeMapper);
         dbi.registerMapper(productMapper);
-        return dbi.onDemand(ProductDao.class);
+        return dbi;
     }
 
 }
@@ -4,8 +4,11 @@
 package com.intrence.core.persistence.annotation;
 
 import com.intrence.core.persistence.common.JsonObject;
+import com.intrence.core.persistence.common.SqlArray;
+import com.intrence.core.persistence.dao.ProductDao;
 import com.intrence.models.model.Product;
 import com.intrence.models.model.Size;
+import org.skife.jdbi.v2.SQLStatement;
 import org.skife.jdbi.v2.sqlobject.Binder;
 import org.skife.jdbi.v2.sqlobject.BinderFactory;
 import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
@@ -17,36 +20,60 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @BindingAnnotation(BindProduct.ProductBinderFactory.class)
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.PARAMETER})
 public @interface BindProduct {
     class ProductBinderFactory implements BinderFactory {
+
+        // a named parameter, but not the type of a :: cast
+        private static final Pattern PARAMETER = Pattern.compile("(?<!:):\\w+");
+
         @Override
         public Binder build(Annotation annotation) {
-            return (Binder<BindProduct, Product>)
-                    (q, bind, product) -> {
-                        q.bind("uuid", product.getUuid());
-                        q.bind("name", product.getName());
-                        q.bind("description", product.getDescription());
-                        q.bind("designer", product.getDesigner());
-                        q.bind("sex", product.getSex() == null ? null : product.getSex().getSexString());
-                        q.bind("available_sizes", convertSizeIntoStandards(product.getAvailableSizes()));
-                        q.bind("clothing_category", product.getClothingCategory() == null ? null : product.getClothingCategory().getName());
-                        q.bind("original_price", new JsonObject<>(product.getOriginalPrice()));
-                        q.bind("current_price", new JsonObject<>(product.getCurrentPrice()));
-                        q.bind("is_on_sale", product.getIsOnSale());
-                        q.bind("sale_discount", product.getSaleDiscount());
-                        q.bind("source", product.getSource());
-                        q.bind("external_link", product.getExternalLink());
-                        q.bind("image_links", product.getImageLinks());
-                        q.bind("created_at", product.getCreatedAt());
-                        q.bind("updated_at", product.getUpdatedAt());
-                    };
+            return (Binder<BindProduct, Product>) (q, bind, product) -> bindProduct(q, product, "");
+        }
+
+        /**
+         * Binds every product column, suffixing each parameter name with {@code suffix} so that several products can
+         * be bound into one multi-row statement. An empty suffix binds the plain column names.
+         */
+        public static void bindProduct(SQLStatement<?> q, Product product, String suffix) {
+            q.bind(name("uuid", suffix), product.getUuid());
+            q.bind(name("name", suffix), product.getName());
+            q.bind(name("description", suffix), product.getDescription());
+            q.bind(name("designer", suffix), product.getDesigner());
+            q.bind(name("sex", suffix), product.getSex() == null ? null : product.getSex().getSexString());
+            q.bind(name("available_sizes", suffix), new SqlArray<>("clothing_size_enum", convertSizeIntoStandards(product.getAvailableSizes())));
+            q.bind(name("clothing_category", suffix), product.getClothingCategory() == null ? null : product.getClothingCategory().getName());
+            q.bind(name("original_price", suffix), new JsonObject<>(product.getOriginalPrice()));
+            q.bind(name("current_price", suffix), new JsonObject<>(product.getCurrentPrice()));
+            q.bind(name("is_on_sale", suffix), product.getIsOnSale());
+            q.bind(name("sale_discount", suffix), product.getSaleDiscount());
+            q.bind(name("source", suffix), product.getSource());
+            q.bind(name("external_link", suffix), product.getExternalLink());
+            q.bind(name("image_links", suffix), product.getImageLinks());
+            q.bind(name("created_at", suffix), product.getCreatedAt());
+            q.bind(name("updated_at", suffix), product.getUpdatedAt());
+        }
+
+        /**
+         * Renders {@link ProductDao#PRODUCT_VALUES}, the VALUES row of {@link ProductDao#INSERT_PRODUCT_SQL}, with every
+         * parameter name suffixed by {@code suffix} as {@link #bindProduct(SQLStatement, Product, String)} binds them.
+         */
+        public static String valuesRow(String suffix) {
+            return suffix.isEmpty() ? ProductDao.PRODUCT_VALUES
+                    : PARAMETER.matcher(ProductDao.PRODUCT_VALUES).replaceAll("$0" + Matcher.quoteReplacement(suffix));
+        }
+
+        private static String name(String column, String suffix) {
+            return suffix.isEmpty() ? column : column + suffix;
         }
 
-        private static Set<String> convertSizeIntoStandards(Set<Size> sizes) {
+        public static Set<String> convertSizeIntoStandards(Set<Size> sizes) {
             Set<String> sizeStandards = new HashSet<>();
             for (Size size : sizes) {
                 sizeStandards.add(size.getStandard());
@@ -0,0 +1,17 @@
+package com.intrence.core.persistence.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only DAO method that may be served by a read replica. The result can be as stale as the configured
+ * replica lag allows, so only mark reads that tolerate it.
+ *
+ * @see com.intrence.core.persistence.replica.ReplicaRouter
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface ReplicaEligible {
+}
@@ -0,0 +1,22 @@
+package com.intrence.core.persistence.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caps how long each statement issued by a DAO method may run before the server cancels it. An entry for the method
+ * in the {@code statementTimeouts} config takes precedence, and a request deadline can shorten it further.
+ *
+ * @see com.intrence.core.persistence.jdbi.TimeoutStatementBuilder
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface StatementTimeout {
+
+    /**
+     * The timeout in milliseconds.
+     */
+    long value();
+}
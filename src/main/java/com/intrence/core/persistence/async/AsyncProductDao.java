@@ -0,0 +1,72 @@
+package com.intrence.core.persistence.async;
+
+import com.intrence.core.concurrent.BlockingCallExecutor;
+import com.intrence.core.persistence.common.BatchResult;
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.models.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ProductDao} calls run on a {@link BlockingCallExecutor}, for callers that should not block while the database
+ * works. Every future completes with the DAO's result or exception.
+ */
+public class AsyncProductDao {
+
+    private final ProductDao productDao;
+    private final BlockingCallExecutor executor;
+
+    public AsyncProductDao(ProductDao productDao, BlockingCallExecutor executor) {
+        this.productDao = productDao;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Boolean> lookupProductById(UUID productId) {
+        return executor.submit(() -> productDao.lookupProductById(productId));
+    }
+
+    public CompletableFuture<Product> getProductById(UUID productId) {
+        return executor.submit(() -> productDao.getProductById(productId));
+    }
+
+    public CompletableFuture<List<Product>> getProductsByIds(Collection<UUID> productIds) {
+        return executor.submit(() -> productDao.getProductsByIds(productIds));
+    }
+
+    public CompletableFuture<Void> createProduct(Product product) {
+        return executor.submit(() -> {
+            productDao.createProduct(product);
+            return null;
+        });
+    }
+
+    public CompletableFuture<BatchResult<UUID>> createProducts(Collection<Product> products) {
+        return executor.submit(() -> productDao.createProducts(products));
+    }
+
+    public CompletableFuture<Void> updateProduct(Product product) {
+        return executor.submit(() -> {
+            productDao.updateProduct(product);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteProductById(UUID productId) {
+        return executor.submit(() -> {
+            productDao.deleteProductById(productId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> upsertProduct(Product product) {
+        return executor.submit(() -> productDao.upsertProduct(product));
+    }
+
+    public CompletableFuture<Map<UUID, Boolean>> upsertProducts(Collection<Product> products) {
+        return executor.submit(() -> productDao.upsertProducts(products));
+    }
+}
@@ -0,0 +1,40 @@
+package com.intrence.core.persistence.async;
+
+import com.intrence.core.authentication.User;
+import com.intrence.core.concurrent.BlockingCallExecutor;
+import com.intrence.core.persistence.dao.UserDao;
+import org.joda.time.DateTime;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link UserDao} calls run on a {@link BlockingCallExecutor}. Every future completes with the DAO's result or
+ * exception.
+ */
+public class AsyncUserDao {
+
+    private final UserDao userDao;
+    private final BlockingCallExecutor executor;
+
+    public AsyncUserDao(UserDao userDao, BlockingCallExecutor executor) {
+        this.userDao = userDao;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<User> getUserById(UUID uuid) {
+        return executor.submit(() -> userDao.getUserById(uuid));
+    }
+
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return executor.submit(() -> userDao.getUserByEmail(email));
+    }
+
+    public CompletableFuture<Void> createUser(UUID uuid, String email, String password, String username, String firstname,
+                                              String lastname, DateTime createdAt, DateTime updatedAt) {
+        return executor.submit(() -> {
+            userDao.createUser(uuid, email, password, username, firstname, lastname, createdAt, updatedAt);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package com.intrence.core.persistence.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.core.persistence.jdbi.JDBI;
+import com.intrence.models.model.Product;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Loads a full feed for one `source` by streaming it through COPY into the unlogged `products_staging` table and then
+ * merging the staged rows into `products` with a single INSERT ... ON CONFLICT statement.
+ * <p>
+ * A load runs in one transaction on a session pooled connection: either the whole feed is merged or nothing is.
+ * Concurrent loads of the same source are serialized by an advisory lock.
+ * <p>
+ * The merge writes products behind the back of any cache over {@link ProductDao}, so {@code afterLoad} is run once each
+ * load ended, whether it committed or not, to invalidate it.
+ */
+public class ProductBulkLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkLoader.class);
+
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private static final String COPY_SQL = "COPY products_staging (" + ProductDao.PRODUCT_COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    // when a feed lists a product twice, its most recently updated version wins
+    private static final String MERGE_SQL = "INSERT INTO products (" + ProductDao.PRODUCT_COLUMNS + ") "
+            + "SELECT DISTINCT ON (uuid) " + ProductDao.PRODUCT_COLUMNS + " FROM products_staging WHERE source = :source "
+            + "ORDER BY uuid, updated_at DESC NULLS LAST"
+            + ProductDao.UPSERT_CONFLICT_CLAUSE;
+
+    private static final String PRUNE_SQL = "DELETE FROM products p WHERE p.source = :source AND NOT EXISTS "
+            + "(SELECT 1 FROM products_staging s WHERE s.source = :source AND s.uuid = p.uuid)";
+
+    private static final String CLEAR_STAGING_SQL = "DELETE FROM products_staging WHERE source = :source";
+
+    private final DBI dbi;
+    private final ProductCsvEncoder encoder;
+    private final Runnable afterLoad;
+
+    public ProductBulkLoader(DataSource dataSource, ObjectMapper objectMapper) {
+        this(dataSource, objectMapper, () -> { });
+    }
+
+    /**
+     * @param afterLoad run after every load, typically invalidating a {@link com.intrence.core.persistence.cache.CachingProductDao}
+     */
+    public ProductBulkLoader(DataSource dataSource, ObjectMapper objectMapper, Runnable afterLoad) {
+        this.dbi = JDBI.build(dataSource, null);
+        this.encoder = new ProductCsvEncoder(objectMapper);
+        this.afterLoad = afterLoad;
+    }
+
+    /**
+     * Replaces the catalog of {@code source} with {@code products}.
+     *
+     * @param pruneMissing when true, products of {@code source} that are not part of the feed are deleted
+     */
+    public Result load(String source, Iterator<Product> products, boolean pruneMissing) {
+        Preconditions.checkArgument(source != null, "`source` must be set");
+
+        try {
+            return merge(source, products, pruneMissing);
+        } finally {
+            afterLoad.run();
+        }
+    }
+
+    private Result merge(String source, Iterator<Product> products, boolean pruneMissing) {
+        return dbi.inTransaction((handle, status) -> {
+            handle.createQuery("SELECT pg_advisory_xact_lock(hashtext(:lock))")
+                    .bind("lock", "products_staging:" + source)
+                    .first();
+            handle.createStatement(CLEAR_STAGING_SQL).bind("source", source).execute();
+
+            long staged = copyIntoStaging(handle, source, products);
+            int merged = handle.createStatement(MERGE_SQL).bind("source", source).execute();
+            int pruned = pruneMissing ? handle.createStatement(PRUNE_SQL).bind("source", source).execute() : 0;
+
+            handle.createStatement(CLEAR_STAGING_SQL).bind("source", source).execute();
+            log.info("bulk loaded source {}: staged={}, merged={}, pruned={}", source, staged, merged, pruned);
+            return new Result(staged, merged, pruned);
+        });
+    }
+
+    private long copyIntoStaging(Handle handle, String source, Iterator<Product> products)
+            throws SQLException, JsonProcessingException {
+        CopyIn copyIn = handle.getConnection().unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+            while (products.hasNext()) {
+                Product product = products.next();
+                Preconditions.checkArgument(Objects.equals(source, product.getSource()),
+                        "product %s belongs to source %s, not %s", product.getUuid(), product.getSource(), source);
+                encoder.append(buffer, product);
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    flush(copyIn, buffer);
+                }
+            }
+            flush(copyIn, buffer);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() > 0) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+
+    public static class Result {
+        private final long staged;
+        private final int merged;
+        private final int pruned;
+
+        Result(long staged, int merged, int pruned) {
+            this.staged = staged;
+            this.merged = merged;
+            this.pruned = pruned;
+        }
+
+        /**
+         * Rows copied from the feed, duplicates included.
+         */
+        public long getStaged() {
+            return staged;
+        }
+
+        /**
+         * Products inserted or updated.
+         */
+        public int getMerged() {
+            return merged;
+        }
+
+        /**
+         * Products deleted because the feed no longer lists them.
+         */
+        public int getPruned() {
+            return pruned;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.intrence.core.persistence.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intrence.core.persistence.annotation.BindProduct;
+import com.intrence.models.model.Product;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.Collection;
+import java.util.TimeZone;
+
+/**
+ * Encodes products as rows of PostgreSQL's COPY csv format, in the column order of
+ * {@link com.intrence.core.persistence.dao.ProductDao#PRODUCT_COLUMNS}.
+ * <p>
+ * Every column is encoded to the value {@link BindProduct} binds for it: enums by their string form, prices as the
+ * same ObjectMapper's JSON, and timestamps in the JVM time zone like the JDBC timestamp binding does.
+ */
+class ProductCsvEncoder {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final ObjectMapper objectMapper;
+    private final DateTimeZone timeZone = DateTimeZone.forTimeZone(TimeZone.getDefault());
+
+    ProductCsvEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    void append(StringBuilder out, Product product) throws JsonProcessingException {
+        appendField(out, product.getUuid() == null ? null : product.getUuid().toString()).append(',');
+        appendField(out, product.getName()).append(',');
+        appendField(out, product.getDescription()).append(',');
+        appendField(out, product.getDesigner()).append(',');
+        appendField(out, product.getSex() == null ? null : product.getSex().getSexString()).append(',');
+        appendField(out, toArrayLiteral(BindProduct.ProductBinderFactory.convertSizeIntoStandards(product.getAvailableSizes()))).append(',');
+        appendField(out, product.getClothingCategory() == null ? null : product.getClothingCategory().getName()).append(',');
+        // a missing price is bound as the JSON literal null, not as SQL NULL
+        appendField(out, objectMapper.writeValueAsString(product.getOriginalPrice())).append(',');
+        appendField(out, objectMapper.writeValueAsString(product.getCurrentPrice())).append(',');
+        appendField(out, product.getIsOnSale() == null ? null : product.getIsOnSale().toString()).append(',');
+        appendField(out, product.getSaleDiscount() == null ? null : product.getSaleDiscount().toString()).append(',');
+        appendField(out, product.getSource()).append(',');
+        appendField(out, product.getExternalLink()).append(',');
+        appendField(out, toArrayLiteral(product.getImageLinks())).append(',');
+        appendField(out, formatTimestamp(product.getCreatedAt())).append(',');
+        appendField(out, formatTimestamp(product.getUpdatedAt())).append('\n');
+    }
+
+    private String formatTimestamp(DateTime dateTime) {
+        return dateTime == null ? null : TIMESTAMP_FORMAT.print(dateTime.withZone(timeZone));
+    }
+
+    /**
+     * Appends a csv field. An unquoted empty field is read as NULL by COPY, so empty strings are always quoted.
+     */
+    static StringBuilder appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        if (!value.isEmpty() && !needsQuoting(value)) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Renders a PostgreSQL array literal with every element quoted, so commas, quotes and braces survive.
+     */
+    static String toArrayLiteral(Collection<String> values) {
+        if (values == null) {
+            return null;
+        }
+        StringBuilder literal = new StringBuilder().append('{');
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                literal.append(',');
+            }
+            first = false;
+            if (value == null) {
+                literal.append("NULL");
+                continue;
+            }
+            literal.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    literal.append('\\');
+                }
+                literal.append(c);
+            }
+            literal.append('"');
+        }
+        return literal.append('}').toString();
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        // a lone \. would be read as the end-of-data marker
+        return value.equals("\\.");
+    }
+}
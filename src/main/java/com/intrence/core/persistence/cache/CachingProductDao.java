@@ -0,0 +1,252 @@
+package com.intrence.core.persistence.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.intrence.core.persistence.common.BatchResult;
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.core.persistence.scan.ScannedProduct;
+import com.intrence.models.model.Product;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.exceptions.CallbackFailedException;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through cache in front of {@link ProductDao#getProductById(UUID)}.
+ * <p>
+ * Entries are bounded by count and expire a fixed time after they were read, which bounds how stale a product
+ * written by another instance can be. Writes going through this DAO invalidate the products they touch right away,
+ * whether they succeed or not. Absent products are cached too, so repeated lookups of unknown ids stay off the
+ * database.
+ * <p>
+ * An invalidation does not stop a load already running, which may have read the row before the write committed. Every
+ * invalidation therefore advances a write generation of the id (striped, so unrelated ids may share one), and a read
+ * whose load overlapped a write of its id drops the entry it loaded once the load returns.
+ * <p>
+ * Misses are loaded through {@code loader}, which should read from the primary: a miss right after an invalidating
+ * write loaded from a lagging replica would cache the old row for the whole TTL.
+ */
+public class CachingProductDao implements ProductDao {
+
+    private static final int WRITE_GENERATION_STRIPES = 1024;
+
+    private final ProductDao delegate;
+    private final LoadingCache<UUID, Optional<Product>> cache;
+    private final AtomicLongArray writeGenerations = new AtomicLongArray(WRITE_GENERATION_STRIPES);
+    private final AtomicLong invalidateAllGeneration = new AtomicLong();
+
+    public CachingProductDao(ProductDao delegate, long maxSize, long ttlSeconds, MetricRegistry metrics) {
+        this(delegate, delegate, maxSize, ttlSeconds, metrics);
+    }
+
+    /**
+     * @param loader the DAO cache misses are loaded from, typically {@code delegate} without replica routing
+     */
+    public CachingProductDao(ProductDao delegate, ProductDao loader, long maxSize, long ttlSeconds, MetricRegistry metrics) {
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(new CacheLoader<UUID, Optional<Product>>() {
+                    @Override
+                    public Optional<Product> load(UUID productId) {
+                        return Optional.ofNullable(loader.getProductById(productId));
+                    }
+
+                    @Override
+                    public Map<UUID, Optional<Product>> loadAll(Iterable<? extends UUID> productIds) {
+                        Map<UUID, Optional<Product>> loaded = new HashMap<>();
+                        productIds.forEach(productId -> loaded.put(productId, Optional.empty()));
+                        for (Product product : loader.getProductsByIds(loaded.keySet())) {
+                            loaded.put(product.getUuid(), Optional.of(product));
+                        }
+                        return loaded;
+                    }
+                });
+
+        metrics.register(MetricRegistry.name(ProductDao.class, "cache", "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(ProductDao.class, "cache", "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(ProductDao.class, "cache", "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(ProductDao.class, "cache", "hit-rate"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.register(MetricRegistry.name(ProductDao.class, "cache", "size"), (Gauge<Long>) cache::size);
+    }
+
+    @Override
+    public Product getProductById(UUID productId) {
+        final long generation = writeGeneration(productId);
+        try {
+            return cache.getUnchecked(productId).orElse(null);
+        } catch (UncheckedExecutionException e) {
+            // surface the DAO's own exception rather than the cache's wrapper
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } finally {
+            dropIfWritten(productId, generation);
+        }
+    }
+
+    /**
+     * Serves cached products and fetches all the missing ones with a single query.
+     */
+    @Override
+    public List<Product> getProductsByIds(Collection<UUID> productIds) {
+        final Map<UUID, Long> generations = new HashMap<>();
+        for (UUID productId : productIds) {
+            generations.put(productId, writeGeneration(productId));
+        }
+        try {
+            List<Product> found = new ArrayList<>(productIds.size());
+            for (Optional<Product> product : cache.getAll(productIds).values()) {
+                product.ifPresent(found::add);
+            }
+            return found;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            generations.forEach(this::dropIfWritten);
+        }
+    }
+
+    public void invalidate(UUID productId) {
+        writeGenerations.incrementAndGet(stripe(productId));
+        cache.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        invalidateAllGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private long writeGeneration(UUID productId) {
+        return writeGenerations.get(stripe(productId)) + invalidateAllGeneration.get();
+    }
+
+    /**
+     * Drops the entry of {@code productId} when it was written since {@code generation}: the entry may have been loaded
+     * before that write committed and stored after it invalidated.
+     */
+    private void dropIfWritten(UUID productId, long generation) {
+        if (writeGeneration(productId) != generation) {
+            cache.invalidate(productId);
+        }
+    }
+
+    private static int stripe(UUID productId) {
+        return (productId.hashCode() & Integer.MAX_VALUE) % WRITE_GENERATION_STRIPES;
+    }
+
+    @Override
+    public boolean lookupProductById(UUID productId) {
+        return delegate.lookupProductById(productId);
+    }
+
+    @Override
+    public void createProduct(Product product) {
+        try {
+            delegate.createProduct(product);
+        } finally {
+            invalidate(product.getUuid());
+        }
+    }
+
+    @Override
+    public int[] createProductBatch(Iterable<Product> products) {
+        try {
+            return delegate.createProductBatch(products);
+        } finally {
+            products.forEach(product -> invalidate(product.getUuid()));
+        }
+    }
+
+    @Override
+    public BatchResult<UUID> createProducts(Collection<Product> products, int chunkSize) {
+        try {
+            return delegate.createProducts(products, chunkSize);
+        } finally {
+            products.forEach(product -> invalidate(product.getUuid()));
+        }
+    }
+
+    @Override
+    public String getSourceById(UUID productId) {
+        return delegate.getSourceById(productId);
+    }
+
+    @Override
+    public void updateProduct(Product product) {
+        try {
+            delegate.updateProduct(product);
+        } finally {
+            invalidate(product.getUuid());
+        }
+    }
+
+    @Override
+    public void deleteProductById(UUID productId) {
+        try {
+            delegate.deleteProductById(productId);
+        } finally {
+            invalidate(productId);
+        }
+    }
+
+    @Override
+    public boolean upsertProduct(Product product) {
+        try {
+            return delegate.upsertProduct(product);
+        } finally {
+            invalidate(product.getUuid());
+        }
+    }
+
+    @Override
+    public Map<UUID, Boolean> upsertProducts(Collection<Product> products, int chunkSize) {
+        try {
+            return delegate.upsertProducts(products, chunkSize);
+        } finally {
+            products.forEach(product -> invalidate(product.getUuid()));
+        }
+    }
+
+    @Override
+    public ResultIterator<ScannedProduct> scanProducts(int fetchSize) {
+        return delegate.scanProducts(fetchSize);
+    }
+
+    @Override
+    public ResultIterator<ScannedProduct> scanProductsAfter(String updatedAt, UUID uuid, int fetchSize) {
+        return delegate.scanProductsAfter(updatedAt, uuid, fetchSize);
+    }
+
+    /**
+     * Statements run on the raw handle bypass invalidation; call {@link #invalidate(UUID)} after writing products.
+     */
+    @Override
+    public Handle getHandle() {
+        return delegate.getHandle();
+    }
+
+    @Override
+    public <ReturnType> ReturnType withHandle(HandleCallback<ReturnType> callback) throws CallbackFailedException {
+        return delegate.withHandle(callback);
+    }
+}
@@ -0,0 +1,30 @@
+package com.intrence.core.persistence.common;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Outcome of a chunked batch write: how many rows made it to the database and, keyed by row, why the others did not.
+ */
+public class BatchResult<K> {
+    private final int writtenCount;
+    private final Map<K, RuntimeException> failures;
+
+    public BatchResult(int writtenCount, Map<K, RuntimeException> failures) {
+        this.writtenCount = writtenCount;
+        this.failures = ImmutableMap.copyOf(failures);
+    }
+
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    public Map<K, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
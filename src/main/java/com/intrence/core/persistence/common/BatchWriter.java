@@ -0,0 +1,81 @@
+package com.intrence.core.persistence.common;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import org.skife.jdbi.v2.exceptions.DBIException;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes rows in fixed size chunks, one JDBC batch per chunk. A chunk is written atomically, so when it fails on the
+ * data (SQLSTATE class 22, data exception, or 23, integrity constraint violation) it is split in halves and retried until
+ * the offending rows are isolated; every other row of the chunk is still written. Any other failure, such as a lost
+ * connection, a statement timeout or an exhausted pool, is not the rows' fault and is rethrown as is.
+ */
+public class BatchWriter {
+
+    /**
+     * @param key the key a failed row is reported under; every row must have one, rows are checked before any is written
+     */
+    public static <T, K> BatchResult<K> write(Collection<T> rows,
+                                              int chunkSize,
+                                              Consumer<List<T>> batch,
+                                              Function<T, K> key) {
+        int index = 0;
+        for (T row : rows) {
+            Preconditions.checkArgument(key.apply(row) != null, "row %s has no key", index);
+            index++;
+        }
+        final Map<K, RuntimeException> failures = new LinkedHashMap<>();
+        int written = 0;
+        for (List<T> chunk : Iterables.partition(rows, chunkSize)) {
+            written += writeChunk(chunk, batch, key, failures);
+        }
+        return new BatchResult<>(written, failures);
+    }
+
+    private static <T, K> int writeChunk(List<T> chunk,
+                                         Consumer<List<T>> batch,
+                                         Function<T, K> key,
+                                         Map<K, RuntimeException> failures) {
+        try {
+            batch.accept(chunk);
+            return chunk.size();
+        } catch (DBIException e) {
+            if (!isDataError(e)) {
+                throw e;
+            }
+            if (chunk.size() == 1) {
+                failures.put(key.apply(chunk.get(0)), e);
+                return 0;
+            }
+            final int half = chunk.size() / 2;
+            return writeChunk(chunk.subList(0, half), batch, key, failures)
+                    + writeChunk(chunk.subList(half, chunk.size()), batch, key, failures);
+        }
+    }
+
+    /**
+     * Whether {@code e} was caused by the rows written, by the SQLSTATE of any SQLException behind it. The driver reports
+     * a failed batch as a BatchUpdateException, with the statement's own exception chained as its next exception.
+     */
+    static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException sqlException = (SQLException) cause; sqlException != null; sqlException = sqlException.getNextException()) {
+                    String sqlState = sqlException.getSQLState();
+                    if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
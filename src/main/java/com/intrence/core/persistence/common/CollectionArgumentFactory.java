@@ -1,33 +1,64 @@
 package com.intrence.core.persistence.common;
 
-import org.apache.commons.lang3.StringUtils;
-import org.postgresql.util.PGobject;
+import com.google.common.collect.ImmutableMap;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.Argument;
 import org.skife.jdbi.v2.tweak.ArgumentFactory;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Takes care of serializing JDBI collection/array args
  * Postgres specific functionality is abstracted here
+ * <p>
+ * Collections are bound as real SQL arrays built by the driver, which quotes and escapes every element and sends
+ * null elements as NULL. The element type is inferred from the first non-null element, falling back to varchar; wrap
+ * the collection in a {@link SqlArray} to bind any other type, such as an enum.
  */
-public class CollectionArgumentFactory implements ArgumentFactory<Collection<String>> {
-    private static final String STRING_ARRAY_FORMAT = "varchar[]";
+public class CollectionArgumentFactory implements ArgumentFactory<Object> {
+    private static final String DEFAULT_ELEMENT_TYPE = "varchar";
+
+    private static final Map<Class<?>, String> ELEMENT_TYPES = ImmutableMap.<Class<?>, String>builder()
+            .put(String.class, "varchar")
+            .put(UUID.class, "uuid")
+            .put(Integer.class, "int4")
+            .put(Long.class, "int8")
+            .put(Short.class, "int2")
+            .put(Double.class, "float8")
+            .put(Float.class, "float4")
+            .put(Boolean.class, "bool")
+            .build();
 
     @Override
     public boolean accepts(Class<?> expectedType, Object value, StatementContext ctx) {
-        return value instanceof Collection;
+        return value instanceof Collection || value instanceof SqlArray;
     }
 
     @Override
-    public Argument build(Class<?> expectedType, Collection<String> value, StatementContext ctx) {
-        return (position, statement, ctx1) -> {
-            PGobject pgObject = new PGobject();
-            pgObject.setType(STRING_ARRAY_FORMAT);
-            // ugh postgres..coerce collection in string format PG requires
-            pgObject.setValue(String.format("{%s}", StringUtils.join(value, ",")));
-            statement.setObject(position, pgObject);
-        };
+    public Argument build(Class<?> expectedType, Object value, StatementContext ctx) {
+        final String elementType;
+        final Object[] elements;
+        if (value instanceof SqlArray) {
+            elementType = ((SqlArray<?>) value).getElementType();
+            elements = ((SqlArray<?>) value).getElements().toArray();
+        } else {
+            elements = ((Collection<?>) value).toArray();
+            elementType = elementTypeOf(elements);
+        }
+        // the driver caches the array type oid per connection after the first lookup
+        return (position, statement, ctx1) ->
+                statement.setArray(position, statement.getConnection().createArrayOf(elementType, elements));
+    }
+
+    static String elementTypeOf(Object[] elements) {
+        for (Object element : elements) {
+            if (element != null) {
+                String type = ELEMENT_TYPES.get(element.getClass());
+                return type == null ? DEFAULT_ELEMENT_TYPE : type;
+            }
+        }
+        return DEFAULT_ELEMENT_TYPE;
     }
 }
@@ -0,0 +1,38 @@
+package com.intrence.core.persistence.common;
+
+/**
+ * Names the DAO method the current thread is executing, e.g. {@code ProductDao.getProductById}, so that code below the
+ * DAO (connection acquisition, for one) can attribute its work to the caller. Set by
+ * {@link com.intrence.core.persistence.jdbi.InstrumentedSqlObject}.
+ */
+public final class DaoMethodTag {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private DaoMethodTag() {
+    }
+
+    /**
+     * @return the tag of the innermost DAO method running on this thread, or null outside of any
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tags the thread with {@code tag} and returns the previous tag, to be handed back to {@link #exit(String)}.
+     */
+    public static String enter(String tag) {
+        String previous = CURRENT.get();
+        CURRENT.set(tag);
+        return previous;
+    }
+
+    public static void exit(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
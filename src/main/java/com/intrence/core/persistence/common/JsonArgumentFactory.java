@@ -1,22 +1,32 @@
 package com.intrence.core.persistence.common;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.inject.Inject;
-import org.postgresql.util.PGobject;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.Argument;
 import org.skife.jdbi.v2.tweak.ArgumentFactory;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Takes care of serializing any JDBI json args
  * Postgres specific functionality is abstracted here
  */
 public class JsonArgumentFactory<T> implements ArgumentFactory<JsonObject<T>> {
-    private static final String JSON_SQL_TYPE = "jsonb";
+
+    // buffers that grew past this (a single huge document) are dropped rather than kept per thread
+    private static final int MAX_RETAINED_BUFFER_CHARS = 16 * 1024;
+
+    private static final ThreadLocal<BufferWriter> BUFFERS = ThreadLocal.withInitial(BufferWriter::new);
+
     private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
 
     @Inject
     public JsonArgumentFactory(ObjectMapper objectMapper) {
@@ -29,19 +39,77 @@ public class JsonArgumentFactory<T> implements ArgumentFactory<JsonObject<T>> {
     }
 
     /**
-     * Json must be wrapped in PGobject for PG to recognize it as json (and not string)
+     * The json text is sent untyped (Types.OTHER) so that PG infers jsonb from the target column or cast, which spares
+     * a PGobject per value. A null object is bound as the json literal null.
      */
     @Override
     public Argument build(Class<?> expectedType, JsonObject<T> value, StatementContext ctx) {
-        return (position, statement, ctx1) -> {
-            try {
-                PGobject pgObject = new PGobject();
-                pgObject.setType(JSON_SQL_TYPE);
-                pgObject.setValue(objectMapper.writeValueAsString(value.get()));
-                statement.setObject(position, pgObject);
-            } catch (JsonProcessingException e) {
-                throw new SQLException("Error serializing JSON value to String", e);
+        return (position, statement, ctx1) -> statement.setObject(position, toJson(value.get()), Types.OTHER);
+    }
+
+    String toJson(Object value) throws SQLException {
+        if (value == null) {
+            return "null";
+        }
+        BufferWriter buffer = BUFFERS.get();
+        try {
+            writerFor(value.getClass()).writeValue(buffer, value);
+            return buffer.toString();
+        } catch (IOException e) {
+            throw new SQLException("Error serializing JSON value to String", e);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    private ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(type, objectMapper::writerFor);
+        }
+        return writer;
+    }
+
+    /**
+     * An unsynchronized, reusable StringWriter. Closing it is a no-op so that Jackson's auto-close leaves it usable.
+     */
+    private static class BufferWriter extends Writer {
+        private StringBuilder builder = new StringBuilder(256);
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            builder.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void reset() {
+            if (builder.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                builder = new StringBuilder(256);
+            } else {
+                builder.setLength(0);
             }
-        };
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
     }
 }
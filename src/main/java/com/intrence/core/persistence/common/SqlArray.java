@@ -0,0 +1,26 @@
+package com.intrence.core.persistence.common;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Collection;
+
+// Wrapper class to bind a collection as a SQL array of an explicit element type, e.g. an enum
+public class SqlArray<T> {
+    private final String elementType;
+    private final Collection<T> elements;
+
+    public SqlArray(String elementType, Collection<T> elements) {
+        Preconditions.checkArgument(elementType != null, "`elementType` must be set");
+        Preconditions.checkArgument(elements != null, "`elements` must be set");
+        this.elementType = elementType;
+        this.elements = elements;
+    }
+
+    public String getElementType() {
+        return elementType;
+    }
+
+    public Collection<T> getElements() {
+        return elements;
+    }
+}
@@ -3,43 +3,167 @@
  */
 package com.intrence.core.persistence.dao;
 
+import com.google.common.collect.Iterables;
 import com.intrence.core.persistence.annotation.BindProduct;
+import com.intrence.core.persistence.annotation.ReplicaEligible;
+import com.intrence.core.persistence.annotation.StatementTimeout;
+import com.intrence.core.persistence.common.BatchResult;
+import com.intrence.core.persistence.common.BatchWriter;
+import com.intrence.core.persistence.mapper.ScannedProductMapper;
+import com.intrence.core.persistence.scan.ScannedProduct;
 import com.intrence.models.model.Product;
+import org.skife.jdbi.v2.Query;
+import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
-import org.skife.jdbi.v2.sqlobject.Transaction;
+import org.skife.jdbi.v2.sqlobject.customizers.FetchSize;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.sqlobject.mixins.GetHandle;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
-public interface ProductDao {
+public interface ProductDao extends GetHandle {
 
+    String PRODUCT_COLUMNS = "uuid, name, description, designer, sex, available_sizes, clothing_category, original_price, current_price, is_on_sale, sale_discount, source, external_link, image_links, created_at, updated_at";
+
+    // The one VALUES row of every product insert; multi-row statements repeat it with suffixed parameter names.
+    String PRODUCT_VALUES = "(:uuid, :name, :description, :designer, :sex::sex_enum, :available_sizes::clothing_size_enum[], :clothing_category, :original_price::jsonb, :current_price::jsonb, :is_on_sale, :sale_discount, :source, :external_link, :image_links, :created_at, :updated_at)";
+
+    String INSERT_PRODUCT_SQL = "INSERT INTO products (" + PRODUCT_COLUMNS + ") VALUES " + PRODUCT_VALUES;
+
+    // Everything but the key and the creation time is refreshed when a product is written again.
+    String UPSERT_CONFLICT_CLAUSE = " ON CONFLICT (uuid) DO UPDATE SET name = EXCLUDED.name, description = EXCLUDED.description, designer = EXCLUDED.designer, sex = EXCLUDED.sex, available_sizes = EXCLUDED.available_sizes, clothing_category = EXCLUDED.clothing_category, original_price = EXCLUDED.original_price, current_price = EXCLUDED.current_price, is_on_sale = EXCLUDED.is_on_sale, sale_discount = EXCLUDED.sale_discount, source = EXCLUDED.source, external_link = EXCLUDED.external_link, image_links = EXCLUDED.image_links, updated_at = EXCLUDED.updated_at";
+
+    // (xmax = 0) only holds for a freshly inserted row version, which is how callers tell inserts from updates.
+    String UPSERT_RETURNING_CLAUSE = " RETURNING uuid, (xmax = 0) AS inserted";
+
+    // 16 parameters per row keeps a full chunk well below the 32767 bind parameter limit of the wire protocol.
+    int DEFAULT_UPSERT_CHUNK_SIZE = 500;
+
+    int DEFAULT_BATCH_CHUNK_SIZE = 1000;
+
+    @ReplicaEligible
+    @StatementTimeout(1000)
     @SqlQuery("SELECT exists (SELECT 1 FROM products WHERE uuid = :uuid LIMIT 1)")
     boolean lookupProductById(@Bind("uuid") UUID productId);
 
-    @SqlUpdate("INSERT INTO products (uuid, name, description, designer, sex, available_sizes, clothing_category, original_price, current_price, is_on_sale, sale_discount, source, external_link, image_links, created_at, updated_at) VALUES (:uuid, :name, :description, :designer, :sex::sex_enum, :available_sizes::clothing_size_enum[], :clothing_category, :original_price, :current_price, :is_on_sale, :sale_discount, :source, :external_link, :image_links, :created_at, :updated_at)")
+    @SqlUpdate(INSERT_PRODUCT_SQL)
     void createProduct(@BindProduct Product product);
 
+    /**
+     * Inserts all products with a single prepared statement sent as one JDBC batch, atomically. Prefer
+     * {@link #createProducts(Collection, int)}, which chunks the input and isolates failing rows.
+     */
+    @SqlBatch(INSERT_PRODUCT_SQL)
+    int[] createProductBatch(@BindProduct Iterable<Product> products);
+
+    default BatchResult<UUID> createProducts(Collection<Product> products) {
+        return createProducts(products, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Inserts the products in JDBC batches of {@code chunkSize}. A row that cannot be written (duplicate uuid,
+     * constraint violation...) is reported in the result without preventing the rest of its chunk from being written.
+     * Failures that are not about the rows, such as a lost connection, are thrown; chunks written before stay written.
+     * A product without a uuid is rejected with IllegalArgumentException before anything is written.
+     */
+    default BatchResult<UUID> createProducts(Collection<Product> products, int chunkSize) {
+        return BatchWriter.write(products, chunkSize, this::createProductBatch, Product::getUuid);
+    }
+
+    @ReplicaEligible
+    @StatementTimeout(1000)
     @SqlQuery("SELECT * FROM products WHERE uuid = :uuid")
     Product getProductById(@Bind("uuid") UUID productId);
 
+    /**
+     * Fetches all listed products with one query, in no particular order. Unknown ids are left out of the result.
+     */
+    @ReplicaEligible
+    @StatementTimeout(3000)
+    @SqlQuery("SELECT * FROM products WHERE uuid = ANY(:uuids::uuid[])")
+    List<Product> getProductsByIds(@Bind("uuids") Collection<UUID> productIds);
+
+    @StatementTimeout(1000)
     @SqlQuery("SELECT source FROM products WHERE uuid = :uuid")
     String getSourceById(@Bind("uuid") UUID productId);
 
+    /**
+     * Streams every product with an updated_at in (updated_at, uuid) order, each with its scan position. Products
+     * whose updated_at is NULL are skipped. The iterator holds its connection until closed; use
+     * {@link com.intrence.core.persistence.scan.ProductScanner}, which runs it in a transaction so rows are fetched
+     * through a server-side cursor {@code fetchSize} at a time.
+     */
+    @SqlQuery("SELECT *, updated_at::text AS " + ScannedProductMapper.SCAN_UPDATED_AT + " FROM products WHERE updated_at IS NOT NULL ORDER BY updated_at, uuid")
+    @Mapper(ScannedProductMapper.class)
+    ResultIterator<ScannedProduct> scanProducts(@FetchSize int fetchSize);
+
+    /**
+     * Like {@link #scanProducts(int)}, resuming strictly after the product at ({@code updatedAt}, {@code uuid}), where
+     * {@code updatedAt} is the text of a {@link com.intrence.core.persistence.scan.ScanPosition}.
+     */
+    @SqlQuery("SELECT *, updated_at::text AS " + ScannedProductMapper.SCAN_UPDATED_AT + " FROM products WHERE (updated_at, uuid) > (CAST(:updated_at AS timestamp), :uuid) ORDER BY updated_at, uuid")
+    @Mapper(ScannedProductMapper.class)
+    ResultIterator<ScannedProduct> scanProductsAfter(@Bind("updated_at") String updatedAt, @Bind("uuid") UUID uuid, @FetchSize int fetchSize);
+
     @SqlUpdate("UPDATE products SET name = :name, description = :description WHERE uuid = :uuid")
     void updateProduct(@BindProduct Product product);
 
     @SqlUpdate("DELETE FROM products where uuid = :uuid")
     void deleteProductById(@Bind("uuid") UUID productId);
 
-    @Transaction
-    default void upsertProduct(final Product product) {
-        if (!lookupProductById(product.getUuid())) {
-            // insert new voucher details tracking
-            createProduct(product);
-        } else {
-            // update existing voucher details tracking
-            updateProduct(product);
+    /**
+     * Inserts the product, or overwrites the stored row when one with the same uuid already exists, in a single
+     * statement.
+     *
+     * @return true when the product was inserted, false when an existing row was updated
+     */
+    @SqlQuery(INSERT_PRODUCT_SQL + UPSERT_CONFLICT_CLAUSE + " RETURNING (xmax = 0) AS inserted")
+    boolean upsertProduct(@BindProduct Product product);
+
+    default Map<UUID, Boolean> upsertProducts(Collection<Product> products) {
+        return upsertProducts(products, DEFAULT_UPSERT_CHUNK_SIZE);
+    }
+
+    /**
+     * Upserts the products with one multi-row INSERT ... ON CONFLICT statement per chunk of {@code chunkSize}.
+     * A statement may not touch the same row twice, so when a uuid occurs more than once only its last occurrence
+     * is written.
+     *
+     * @return for every written uuid, true when it was inserted and false when it was updated
+     */
+    default Map<UUID, Boolean> upsertProducts(Collection<Product> products, int chunkSize) {
+        final Map<UUID, Product> distinct = new LinkedHashMap<>();
+        for (Product product : products) {
+            distinct.remove(product.getUuid());
+            distinct.put(product.getUuid(), product);
+        }
+
+        final Map<UUID, Boolean> results = new LinkedHashMap<>();
+        for (List<Product> chunk : Iterables.partition(distinct.values(), chunkSize)) {
+            withHandle(handle -> {
+                StringBuilder sql = new StringBuilder("INSERT INTO products (").append(PRODUCT_COLUMNS).append(") VALUES ");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "" : ", ").append(BindProduct.ProductBinderFactory.valuesRow("_" + i));
+                }
+                sql.append(UPSERT_CONFLICT_CLAUSE).append(UPSERT_RETURNING_CLAUSE);
+
+                Query<Map<String, Object>> query = handle.createQuery(sql.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    BindProduct.ProductBinderFactory.bindProduct(query, chunk.get(i), "_" + i);
+                }
+                for (Map<String, Object> row : query.list()) {
+                    results.put((UUID) row.get("uuid"), (Boolean) row.get("inserted"));
+                }
+                return null;
+            });
         }
+        return results;
     }
 }
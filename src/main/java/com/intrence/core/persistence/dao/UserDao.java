@@ -1,6 +1,8 @@
 package com.intrence.core.persistence.dao;
 
 import com.intrence.core.authentication.User;
+import com.intrence.core.persistence.annotation.ReplicaEligible;
+import com.intrence.core.persistence.annotation.StatementTimeout;
 import com.intrence.core.persistence.mapper.UserMapper;
 import io.dropwizard.jdbi.args.JodaDateTimeMapper;
 import org.joda.time.DateTime;
@@ -13,10 +15,14 @@ import java.util.UUID;
 
 public interface UserDao {
 
+    @ReplicaEligible
+    @StatementTimeout(1000)
     @SqlQuery("SELECT * FROM users WHERE uuid=:uuid")
     @Mapper(UserMapper.class)
     User getUserById(@Bind("uuid") UUID uuid);
 
+    @ReplicaEligible
+    @StatementTimeout(1000)
     @SqlQuery("SELECT * FROM users WHERE email=:email")
     @Mapper(UserMapper.class)
     User getUserByEmail(@Bind("email") String email);
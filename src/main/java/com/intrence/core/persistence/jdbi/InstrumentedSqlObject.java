@@ -0,0 +1,106 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.intrence.core.persistence.common.BatchResult;
+import com.intrence.core.persistence.common.DaoMethodTag;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Wraps a SQL object so that every method marks, next to the timers of {@link MethodTimingCollector},
+ * {@code jdbi.<Type>.<method>.errors} when it throws and {@code jdbi.<Type>.<method>.rows} with the rows it returned
+ * or updated: the size of a returned collection or map, the update count(s) of a write, or 1 for a returned object.
+ * Streaming results (iterators) are not counted.
+ * <p>
+ * While a method runs, the thread is tagged with its name through {@link DaoMethodTag}.
+ */
+public class InstrumentedSqlObject {
+
+    private InstrumentedSqlObject() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> sqlObjectType, T delegate, MetricRegistry metrics) {
+        final ImmutableMap.Builder<Method, MethodMetrics> builder = ImmutableMap.builder();
+        for (Method method : sqlObjectType.getMethods()) {
+            builder.put(method, new MethodMetrics(sqlObjectType.getSimpleName() + '.' + method.getName(), metrics));
+        }
+        final Map<Method, MethodMetrics> metricsByMethod = builder.build();
+
+        return (T) Proxy.newProxyInstance(sqlObjectType.getClassLoader(), new Class<?>[]{sqlObjectType}, (proxy, method, args) -> {
+            final MethodMetrics methodMetrics = metricsByMethod.get(method);
+            if (methodMetrics == null) {
+                return invoke(method, delegate, args);
+            }
+            final String previousTag = DaoMethodTag.enter(methodMetrics.tag);
+            final Object result;
+            try {
+                result = invoke(method, delegate, args);
+            } catch (Throwable t) {
+                methodMetrics.errors.mark();
+                throw t;
+            } finally {
+                DaoMethodTag.exit(previousTag);
+            }
+            final long rows = rowCount(result);
+            if (rows > 0) {
+                methodMetrics.rows.mark(rows);
+            }
+            return result;
+        });
+    }
+
+    private static Object invoke(Method method, Object delegate, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    static long rowCount(Object result) {
+        if (result == null || result instanceof Boolean || result instanceof Iterator) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof BatchResult) {
+            return ((BatchResult<?>) result).getWrittenCount();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                // Statement.SUCCESS_NO_INFO and EXECUTE_FAILED are negative
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 1;
+    }
+
+    private static class MethodMetrics {
+        private final String tag;
+        private final Meter errors;
+        private final Meter rows;
+
+        private MethodMetrics(String tag, MetricRegistry metrics) {
+            this.tag = tag;
+            this.errors = metrics.meter(MetricRegistry.name(MethodTimingCollector.METRIC_PREFIX, tag, "errors"));
+            this.rows = metrics.meter(MetricRegistry.name(MethodTimingCollector.METRIC_PREFIX, tag, "rows"));
+        }
+    }
+}
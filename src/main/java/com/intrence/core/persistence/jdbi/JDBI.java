@@ -1,9 +1,9 @@
 package com.intrence.core.persistence.jdbi;
 
 import com.codahale.metrics.MetricRegistry;
-//import com.codahale.metrics.jdbi.InstrumentedTimingCollector;
 import org.skife.jdbi.v2.ColonPrefixNamedParamStatementRewriter;
 import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.TimingCollector;
 import org.skife.jdbi.v2.logging.SLF4JLog;
 import org.slf4j.LoggerFactory;
 
@@ -12,7 +12,9 @@ import javax.sql.DataSource;
 public class JDBI {
 
     /**
-     * Build a DBI instance which pulls connections from `ds` and reports metrics to `metrics`.
+     * Build a DBI instance which pulls connections from `ds` and reports metrics to `metrics`, one timer per SQL
+     * object method (see {@link MethodTimingCollector}). No metrics are reported when `metrics` is null. Statements
+     * are also counted into the {@link QueryAccounting} of the thread executing them.
      *
      * It will log SQL to `com.groupon.jtier.jdbi.JDBI` logger at the DEBUG level.
      *
@@ -21,8 +23,20 @@ public class JDBI {
      * Guava's immutable set and list.
      */
     public static DBI build(DataSource ds, MetricRegistry metrics) {
+        return build(ds, metrics, null);
+    }
+
+    /**
+     * Like {@link #build(DataSource, MetricRegistry)}, also reporting statements to `slowQueryLog` unless it is null.
+     * Slow statements it explains are explained on `ds`.
+     */
+    public static DBI build(DataSource ds, MetricRegistry metrics, SlowQueryLog slowQueryLog) {
         DBI dbi = new DBI(ds);
-//        dbi.setTimingCollector(new InstrumentedTimingCollector(metrics));
+        TimingCollector timingCollector = metrics == null ? TimingCollector.NOP_TIMING_COLLECTOR : new MethodTimingCollector(metrics);
+        if (slowQueryLog != null) {
+            timingCollector = new SlowQueryCollector(slowQueryLog, ds, timingCollector);
+        }
+        dbi.setTimingCollector(new QueryAccountingCollector(timingCollector));
         dbi.setSQLLog(new SLF4JLog(LoggerFactory.getLogger(JDBI.class), SLF4JLog.Level.DEBUG));
         dbi.setStatementRewriter(new NamePrependingStatementRewriter(new ColonPrefixNamedParamStatementRewriter()));
 
@@ -0,0 +1,42 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every successfully executed statement into a timer named after the SQL object method that issued it, e.g.
+ * {@code jdbi.ProductDao.getProductById}, the same name {@link NamePrependingStatementRewriter} tags the SQL with.
+ * Statements issued directly on a handle are timed into {@code jdbi.raw-sql}.
+ */
+class MethodTimingCollector implements TimingCollector {
+
+    static final String METRIC_PREFIX = "jdbi";
+    static final String RAW_SQL_NAME = "raw-sql";
+
+    private final MetricRegistry metrics;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    MethodTimingCollector(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void collect(long elapsedTime, StatementContext ctx) {
+        final String statementName = NamePrependingStatementRewriter.statementName(ctx);
+        timerFor(statementName == null ? RAW_SQL_NAME : statementName).update(elapsedTime, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timerFor(String statementName) {
+        Timer timer = timers.get(statementName);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(statementName, name -> metrics.timer(MetricRegistry.name(METRIC_PREFIX, name)));
+        }
+        return timer;
+    }
+}
@@ -5,8 +5,22 @@ import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.RewrittenStatement;
 import org.skife.jdbi.v2.tweak.StatementRewriter;
 
-class NamePrependingStatementRewriter implements StatementRewriter {
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Prepends a comment naming the issuing SQL object method, e.g. ProductDao.getProductById, to every statement issued
+ * by a SQL object.
+ * <p>
+ * The tagged SQL is built once per method, so the cache is bounded by the number of SQL object methods, and handed to
+ * the wrapped rewriter as the same String instance on every call. ColonPrefixNamedParamStatementRewriter caches its
+ * parse in a WeakHashMap keyed by that String; a String built per call is only weakly reachable, so its parse would be
+ * dropped again on every GC.
+ */
+public class NamePrependingStatementRewriter implements StatementRewriter {
     private final StatementRewriter rewriter;
+    private final ConcurrentMap<Method, TaggedSql> taggedSql = new ConcurrentHashMap<>();
 
     public NamePrependingStatementRewriter(StatementRewriter rewriter) {
         this.rewriter = rewriter;
@@ -14,18 +28,43 @@ class NamePrependingStatementRewriter implements StatementRewriter {
 
     @Override
     public RewrittenStatement rewrite(String sql, Binding params, StatementContext ctx) {
-        if ((ctx.getSqlObjectType() != null) && (ctx.getSqlObjectMethod() != null)) {
-            final StringBuilder query = new StringBuilder(sql.length() + 100);
-            query.append("/* ");
-            final String className = ctx.getSqlObjectType().getSimpleName();
-            if (!className.isEmpty()) {
-                query.append(className).append('.');
-            }
-            query.append(ctx.getSqlObjectMethod().getName());
-            query.append(" */ ");
-            query.append(sql);
-            return rewriter.rewrite(query.toString(), params, ctx);
+        final Method method = ctx.getSqlObjectMethod();
+        if ((ctx.getSqlObjectType() == null) || (method == null)) {
+            return rewriter.rewrite(sql, params, ctx);
+        }
+        TaggedSql tagged = taggedSql.get(method);
+        // a method's SQL only changes with templating (@Define), in which case the entry is replaced
+        if (tagged == null || tagged.sqlObjectType != ctx.getSqlObjectType() || !tagged.sql.equals(sql)) {
+            final String statementName = statementName(ctx);
+            tagged = new TaggedSql(ctx.getSqlObjectType(), sql, new StringBuilder(sql.length() + statementName.length() + 7)
+                    .append("/* ").append(statementName).append(" */ ").append(sql).toString());
+            taggedSql.put(method, tagged);
+        }
+        return rewriter.rewrite(tagged.tagged, params, ctx);
+    }
+
+    /**
+     * The name statements issued by a SQL object method are tagged with, e.g. {@code ProductDao.getProductById}, or
+     * null for statements issued directly on a handle.
+     */
+    static String statementName(StatementContext ctx) {
+        if ((ctx.getSqlObjectType() == null) || (ctx.getSqlObjectMethod() == null)) {
+            return null;
+        }
+        final String className = ctx.getSqlObjectType().getSimpleName();
+        final String methodName = ctx.getSqlObjectMethod().getName();
+        return className.isEmpty() ? methodName : className + '.' + methodName;
+    }
+
+    private static class TaggedSql {
+        private final Class<?> sqlObjectType;
+        private final String sql;
+        private final String tagged;
+
+        private TaggedSql(Class<?> sqlObjectType, String sql, String tagged) {
+            this.sqlObjectType = sqlObjectType;
+            this.sql = sql;
+            this.tagged = tagged;
         }
-        return rewriter.rewrite(sql, params, ctx);
     }
 }
@@ -0,0 +1,138 @@
+package com.intrence.core.persistence.jdbi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the statements executed on behalf of one unit of work, typically an HTTP request, with their total time and a
+ * breakdown by the SQL object method that issued them (e.g. {@code ProductDao.getProductById}, see
+ * {@link NamePrependingStatementRewriter#statementName}).
+ * <p>
+ * Every DBI built by {@link JDBI#build} reports to the accounting bound to the executing thread, if any. When one
+ * method issues more than {@code repeatThreshold} statements a warning is logged once, as a loop calling a DAO per
+ * item (N+1 queries) usually should have been a single batched query.
+ */
+public final class QueryAccounting implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryAccounting.class);
+    private static final ThreadLocal<QueryAccounting> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final int repeatThreshold;
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+    private final ConcurrentMap<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final AtomicInteger repeatedMethods = new AtomicInteger();
+    private QueryAccounting previous;
+
+    private QueryAccounting(String name, int repeatThreshold) {
+        this.name = name;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * Binds a new accounting named {@code name} to this thread until it is closed. A non-positive
+     * {@code repeatThreshold} turns off the repeated statement warning.
+     */
+    public static QueryAccounting start(String name, int repeatThreshold) {
+        QueryAccounting accounting = new QueryAccounting(name, repeatThreshold);
+        accounting.previous = CURRENT.get();
+        CURRENT.set(accounting);
+        return accounting;
+    }
+
+    /**
+     * The accounting bound to this thread, or null when there is none.
+     */
+    public static QueryAccounting current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds {@code accounting}, which may be null, to this thread, so that work handed to another thread is counted
+     * with the work of the thread that handed it over. Returns the accounting bound before, to be handed back to
+     * {@link #restore(QueryAccounting)}.
+     */
+    public static QueryAccounting attach(QueryAccounting accounting) {
+        QueryAccounting previous = CURRENT.get();
+        restore(accounting);
+        return previous;
+    }
+
+    public static void restore(QueryAccounting previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    void record(String statementName, long elapsedNanos) {
+        this.statements.incrementAndGet();
+        this.elapsedNanos.addAndGet(elapsedNanos);
+        MethodStats stats = methods.get(statementName);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(statementName, key -> new MethodStats());
+        }
+        stats.elapsedNanos.addAndGet(elapsedNanos);
+        if (stats.statements.incrementAndGet() == repeatThreshold + 1 && repeatThreshold > 0) {
+            repeatedMethods.incrementAndGet();
+            log.warn("{} issued more than {} statements from {}, consider fetching them with one query", name, repeatThreshold, statementName);
+        }
+    }
+
+    public int getStatements() {
+        return statements.get();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos.get());
+    }
+
+    /**
+     * The number of methods that issued more than {@code repeatThreshold} statements.
+     */
+    public int getRepeatedMethods() {
+        return repeatedMethods.get();
+    }
+
+    /**
+     * Statement counts by issuing method, sorted by name.
+     */
+    public Map<String, Integer> getStatementsByMethod() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, MethodStats> entry : methods.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().statements.get());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Unbinds this accounting, restoring the one bound when it was started.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            restore(previous);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getStatements() + " statements in " + getElapsedMillis() + "ms " + getStatementsByMethod();
+    }
+
+    private static class MethodStats {
+        private final AtomicInteger statements = new AtomicInteger();
+        private final AtomicLong elapsedNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,26 @@
+package com.intrence.core.persistence.jdbi;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
+
+/**
+ * Reports every executed statement to the {@link QueryAccounting} of the executing thread, then to {@code delegate}.
+ */
+class QueryAccountingCollector implements TimingCollector {
+
+    private final TimingCollector delegate;
+
+    QueryAccountingCollector(TimingCollector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void collect(long elapsedTime, StatementContext ctx) {
+        final QueryAccounting accounting = QueryAccounting.current();
+        if (accounting != null) {
+            final String statementName = NamePrependingStatementRewriter.statementName(ctx);
+            accounting.record(statementName == null ? MethodTimingCollector.RAW_SQL_NAME : statementName, elapsedTime);
+        }
+        delegate.collect(elapsedTime, ctx);
+    }
+}
@@ -0,0 +1,95 @@
+package com.intrence.core.persistence.jdbi;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The parameters bound to a statement, recorded as the {@code set*} calls made on a stand-in PreparedStatement, so
+ * that they can be summarized without their values and bound again to another statement.
+ */
+class RecordedBinding {
+
+    private final List<Call> calls = new ArrayList<>();
+
+    /**
+     * A PreparedStatement that records every parameter set on it. {@code getConnection()} returns {@code connection},
+     * for arguments that create arrays or LOBs; any other call is ignored.
+     */
+    PreparedStatement recorder(Connection connection) {
+        return (PreparedStatement) Proxy.newProxyInstance(RecordedBinding.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getConnection")) {
+                return connection;
+            }
+            if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                calls.add(new Call(method, args));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * The bound parameters by position with their values redacted, e.g. {@code $1=<text len=36>, $2=null}.
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Call call : calls) {
+            summary.append(summary.length() == 0 ? "" : ", ").append('$').append(call.args[0]).append('=')
+                    .append(call.method.getName().equals("setNull") ? "null" : redact(call.args[1]));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Sets the recorded parameters on {@code statement}, at the same positions.
+     */
+    void replay(PreparedStatement statement) throws SQLException {
+        for (Call call : calls) {
+            try {
+                call.method.invoke(statement, call.args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        }
+    }
+
+    private static String redact(Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof Boolean) {
+            return value.toString();
+        } else if (value instanceof CharSequence) {
+            return "<text len=" + ((CharSequence) value).length() + ">";
+        } else if (value instanceof Number) {
+            return "<number>";
+        } else if (value instanceof Collection) {
+            return "<" + ((Collection<?>) value).size() + " items>";
+        } else if (value instanceof Array) {
+            try {
+                return "<" + ((Array) value).getBaseTypeName() + "[]>";
+            } catch (SQLException e) {
+                return "<array>";
+            }
+        }
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+
+    private static class Call {
+        private final Method method;
+        private final Object[] args;
+
+        private Call(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+}
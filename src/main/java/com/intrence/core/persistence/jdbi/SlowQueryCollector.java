@@ -0,0 +1,28 @@
+package com.intrence.core.persistence.jdbi;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
+
+import javax.sql.DataSource;
+
+/**
+ * Reports every executed statement, as run on {@code dataSource}, to a {@link SlowQueryLog}, then to {@code delegate}.
+ */
+class SlowQueryCollector implements TimingCollector {
+
+    private final SlowQueryLog slowQueryLog;
+    private final DataSource dataSource;
+    private final TimingCollector delegate;
+
+    SlowQueryCollector(SlowQueryLog slowQueryLog, DataSource dataSource, TimingCollector delegate) {
+        this.slowQueryLog = slowQueryLog;
+        this.dataSource = dataSource;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void collect(long elapsedTime, StatementContext ctx) {
+        slowQueryLog.record(elapsedTime, ctx, dataSource);
+        delegate.collect(elapsedTime, ctx);
+    }
+}
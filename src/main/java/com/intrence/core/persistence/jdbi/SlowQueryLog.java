@@ -0,0 +1,202 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import org.skife.jdbi.v2.ColonPrefixNamedParamStatementRewriter;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.RewrittenStatement;
+import org.skife.jdbi.v2.tweak.StatementRewriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Logs every statement slower than {@code thresholdMillis} with the SQL object method that issued it and a summary of
+ * its parameters that leaves out their values.
+ * <p>
+ * A {@code explainSampleRate} fraction of the slow SELECTs is run again under {@code EXPLAIN (ANALYZE, BUFFERS)} on
+ * the data source that ran it, so with the same role and on the same primary or replica, in a read-only transaction
+ * on a background thread, and the plans are kept in a ring
+ * buffer of the latest {@code capacity} (see {@link com.intrence.core.tasks.SlowQueryPlansTask}). At most a few
+ * explains are queued at a time; slow statements arriving while they run are only logged.
+ * <p>
+ * An explain takes its connection from that same pool, which is likely busy when statements are slow, and outside the
+ * concurrency limiter. Explains run one at a time, so they hold at most one connection, each for no longer than twice
+ * the statement's own time; keep {@code explainSampleRate} low on pools with few connections.
+ */
+public class SlowQueryLog implements Managed {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final int MAX_QUEUED_EXPLAINS = 4;
+    private static final Pattern SELECT = Pattern.compile("^\\s*select\\b", Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdNanos;
+    private final double explainSampleRate;
+    private final int capacity;
+    private final Deque<CapturedPlan> plans;
+    private final ThreadPoolExecutor explainExecutor;
+    // a rewriter of our own, to replay the binding of a slow statement without the name tag
+    private final StatementRewriter rewriter = new ColonPrefixNamedParamStatementRewriter();
+
+    public SlowQueryLog(long thresholdMillis, double explainSampleRate, int capacity) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explainSampleRate = explainSampleRate;
+        this.capacity = capacity;
+        this.plans = new ArrayDeque<>(capacity);
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_EXPLAINS),
+                new ThreadFactoryBuilder().setNameFormat("slow-query-explain-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * @param dataSource the data source the statement ran on, to explain it on; null to only log it
+     */
+    void record(long elapsedNanos, StatementContext ctx, DataSource dataSource) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        final String statementName = NamePrependingStatementRewriter.statementName(ctx);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        // the binding has to be read now, while the statement context is still in use
+        RewrittenStatement rewritten = null;
+        final RecordedBinding binding = new RecordedBinding();
+        String bindSummary;
+        try {
+            rewritten = rewriter.rewrite(ctx.getLocatedSql(), ctx.getBinding(), ctx);
+            rewritten.bind(ctx.getBinding(), binding.recorder(ctx.getConnection()));
+            bindSummary = binding.summary();
+        } catch (SQLException | RuntimeException e) {
+            rewritten = null;
+            bindSummary = "unavailable";
+        }
+        log.warn("slow statement {} took {}ms, binds [{}]", statementName == null ? MethodTimingCollector.RAW_SQL_NAME : statementName,
+                elapsedMillis, bindSummary);
+
+        if (dataSource != null && rewritten != null && SELECT.matcher(rewritten.getSql()).find()
+                && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+            final String sql = rewritten.getSql();
+            final String summary = bindSummary;
+            explainExecutor.execute(() -> explain(dataSource, statementName, elapsedMillis, sql, summary, binding));
+        }
+    }
+
+    private void explain(DataSource dataSource, String statementName, long elapsedMillis, String sql, String bindSummary,
+                         RecordedBinding binding) {
+        final StringBuilder plan = new StringBuilder();
+        try (Connection connection = dataSource.getConnection()) {
+            // not setReadOnly(): in autocommit it sets the session default, which would outlive this transaction on a
+            // pgbouncer transaction pool's shared server connection
+            connection.setAutoCommit(false);
+            try (Statement readOnly = connection.createStatement()) {
+                readOnly.execute("SET TRANSACTION READ ONLY");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                // the statement ran for elapsedMillis once already; give it twice that before giving up
+                statement.setQueryTimeout((int) Math.max(1, (2 * elapsedMillis + 999) / 1000));
+                binding.replay(statement);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(plan.length() == 0 ? "" : "\n").append(resultSet.getString(1));
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.info("could not explain slow statement {}", statementName, e);
+            return;
+        }
+        add(new CapturedPlan(Instant.now(), statementName, elapsedMillis, sql, bindSummary, plan.toString()));
+    }
+
+    private synchronized void add(CapturedPlan plan) {
+        if (plans.size() == capacity) {
+            plans.removeLast();
+        }
+        plans.addFirst(plan);
+    }
+
+    /**
+     * The captured plans, newest first.
+     */
+    public synchronized List<CapturedPlan> getCapturedPlans() {
+        return ImmutableList.copyOf(plans);
+    }
+
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        explainExecutor.shutdownNow();
+    }
+
+    public static class CapturedPlan {
+        private final Instant capturedAt;
+        private final String statementName;
+        private final long elapsedMillis;
+        private final String sql;
+        private final String bindSummary;
+        private final String plan;
+
+        CapturedPlan(Instant capturedAt, String statementName, long elapsedMillis, String sql, String bindSummary, String plan) {
+            this.capturedAt = capturedAt;
+            this.statementName = statementName;
+            this.elapsedMillis = elapsedMillis;
+            this.sql = sql;
+            this.bindSummary = bindSummary;
+            this.plan = plan;
+        }
+
+        public Instant getCapturedAt() {
+            return capturedAt;
+        }
+
+        /**
+         * The SQL object method that issued the statement, or null for SQL issued on a handle.
+         */
+        public String getStatementName() {
+            return statementName;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getBindSummary() {
+            return bindSummary;
+        }
+
+        public String getPlan() {
+            return plan;
+        }
+    }
+}
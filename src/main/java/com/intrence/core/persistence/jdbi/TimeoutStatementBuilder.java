@@ -0,0 +1,103 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.intrence.core.concurrent.Deadline;
+import com.intrence.core.concurrent.DeadlineExceededException;
+import com.intrence.core.persistence.annotation.StatementTimeout;
+import org.skife.jdbi.v2.DefaultStatementBuilder;
+import org.skife.jdbi.v2.StatementContext;
+
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sets a query timeout on every statement, after which the driver has the server cancel it (SQLSTATE 57014) and the
+ * connection goes back to the pool.
+ * <p>
+ * The timeout of a SQL object method is its entry in {@code timeouts}, keyed by statement name (e.g.
+ * {@code ProductDao.getProductById}), else its {@link StatementTimeout}, else {@code defaultTimeoutMillis}; zero means
+ * none. Under a {@link Deadline} it is cut to the time the request has left, and a statement whose deadline has
+ * already passed is not created at all.
+ * <p>
+ * The driver only takes whole seconds, so timeouts are rounded up.
+ */
+public class TimeoutStatementBuilder extends DefaultStatementBuilder {
+
+    private static final long NO_TIMEOUT = 0;
+
+    private final long defaultTimeoutMillis;
+    private final Map<String, Long> timeouts;
+    private final ConcurrentMap<Method, Long> methodTimeouts = new ConcurrentHashMap<>();
+
+    public TimeoutStatementBuilder(long defaultTimeoutMillis, Map<String, Long> timeouts) {
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.timeouts = timeouts == null ? Collections.emptyMap() : timeouts;
+    }
+
+    @Override
+    public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        final long timeoutMillis = timeoutMillis(ctx);
+        return withTimeout(super.create(conn, sql, ctx), timeoutMillis);
+    }
+
+    @Override
+    public CallableStatement createCall(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        final long timeoutMillis = timeoutMillis(ctx);
+        return withTimeout(super.createCall(conn, sql, ctx), timeoutMillis);
+    }
+
+    /**
+     * The timeout for the next statement issued in {@code ctx}, in milliseconds.
+     *
+     * @throws DeadlineExceededException when the current deadline has passed
+     */
+    long timeoutMillis(StatementContext ctx) {
+        long timeoutMillis = configuredTimeoutMillis(ctx);
+        final Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            final long remainingMillis = deadline.remainingMillis();
+            if (remainingMillis <= 0) {
+                final String statementName = NamePrependingStatementRewriter.statementName(ctx);
+                throw new DeadlineExceededException("deadline passed before " + (statementName == null ? "statement" : statementName) + " was issued");
+            }
+            timeoutMillis = timeoutMillis == NO_TIMEOUT ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+        }
+        return timeoutMillis;
+    }
+
+    private long configuredTimeoutMillis(StatementContext ctx) {
+        final Method method = ctx.getSqlObjectMethod();
+        if ((ctx.getSqlObjectType() == null) || (method == null)) {
+            return defaultTimeoutMillis;
+        }
+        Long timeoutMillis = methodTimeouts.get(method);
+        if (timeoutMillis == null) {
+            timeoutMillis = timeouts.get(NamePrependingStatementRewriter.statementName(ctx));
+            if (timeoutMillis == null) {
+                final StatementTimeout annotation = method.getAnnotation(StatementTimeout.class);
+                timeoutMillis = annotation == null ? defaultTimeoutMillis : annotation.value();
+            }
+            methodTimeouts.put(method, timeoutMillis);
+        }
+        return timeoutMillis;
+    }
+
+    private static <S extends Statement> S withTimeout(S statement, long timeoutMillis) throws SQLException {
+        if (timeoutMillis > NO_TIMEOUT) {
+            try {
+                statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (timeoutMillis + 999) / 1000));
+            } catch (SQLException e) {
+                statement.close();
+                throw e;
+            }
+        }
+        return statement;
+    }
+}
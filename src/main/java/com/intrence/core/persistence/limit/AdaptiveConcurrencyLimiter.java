@@ -0,0 +1,102 @@
+package com.intrence.core.persistence.limit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Bounds the DAO calls in flight against one connection pool with an AIMD limit driven by call latency.
+ * <p>
+ * The limit starts at, and never exceeds, the pool size. A call slower than the latency threshold, or one that failed
+ * because the database is overloaded, cuts the limit by {@link #BACKOFF_RATIO}, once per congestion event: calls that
+ * were already in flight when the limit was last cut do not cut it again. A fast call that completes while at least
+ * half of the limit was in use raises it by 1/limit, i.e. by about one per round of calls. Calls beyond the limit fail fast with
+ * {@link ConcurrencyLimitExceededException} instead of queueing until the pool's connection timeout, and
+ * {@link Priority#LOW} calls are only admitted while {@link #LOW_PRIORITY_SHARE} of the limit is not yet used.
+ * <p>
+ * Metrics: {@code <name>.limit}, {@code <name>.in-flight}, and {@code <name>.rejected.high|low}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final double BACKOFF_RATIO = 0.9;
+    static final double LOW_PRIORITY_SHARE = 0.75;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final Meter rejectedHigh;
+    private final Meter rejectedLow;
+
+    private double limit;
+    private int inFlight;
+    private boolean backedOff;
+    private long lastBackoffNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, int maxLimit, long latencyThresholdMillis, MetricRegistry metrics) {
+        this.name = name;
+        this.minLimit = 1;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.limit = maxLimit;
+        this.rejectedHigh = metrics.meter(MetricRegistry.name(name, "rejected", "high"));
+        this.rejectedLow = metrics.meter(MetricRegistry.name(name, "rejected", "low"));
+        metrics.register(MetricRegistry.name(name, "limit"), (Gauge<Integer>) this::getLimit);
+        metrics.register(MetricRegistry.name(name, "in-flight"), (Gauge<Integer>) this::getInFlight);
+    }
+
+    /**
+     * Admits a call or throws. Every admitted call must be followed by exactly one {@link #release(long, boolean)}.
+     *
+     * @return the start time to hand to {@link #release(long, boolean)}
+     */
+    public long acquire(Priority priority) {
+        synchronized (this) {
+            final double admitted = priority == Priority.HIGH ? limit : Math.max(minLimit, limit * LOW_PRIORITY_SHARE);
+            if (inFlight < (int) admitted) {
+                inFlight++;
+                return System.nanoTime();
+            }
+        }
+        (priority == Priority.HIGH ? rejectedHigh : rejectedLow).mark();
+        throw new ConcurrencyLimitExceededException(String.format("%s: %s priority call rejected, limit %d reached", name, priority, getLimit()));
+    }
+
+    /**
+     * @param overloaded whether the call failed in a way that shows the database is overloaded
+     */
+    public void release(long startNanos, boolean overloaded) {
+        release(startNanos, overloaded, true);
+    }
+
+    /**
+     * @param overloaded whether the call failed in a way that shows the database is overloaded
+     * @param timed      whether the call's latency is a sample of a single statement's; calls that run any number of
+     *                   statements are only counted in flight, and only their overload failures move the limit
+     */
+    public synchronized void release(long startNanos, boolean overloaded, boolean timed) {
+        // in flight before this call completed, so that a limit of 1 can grow again
+        final int used = inFlight--;
+        final long now = System.nanoTime();
+        if (!timed && !overloaded) {
+            return;
+        }
+        if (overloaded || now - startNanos > latencyThresholdNanos) {
+            if (!backedOff || startNanos - lastBackoffNanos >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                backedOff = true;
+                lastBackoffNanos = now;
+            }
+        } else if (used * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,11 @@
+package com.intrence.core.persistence.limit;
+
+/**
+ * Thrown instead of running a DAO call when {@link AdaptiveConcurrencyLimiter} has no room for it.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,77 @@
+package com.intrence.core.persistence.limit;
+
+import com.intrence.core.persistence.annotation.ReplicaEligible;
+import org.skife.jdbi.v2.exceptions.UnableToObtainConnectionException;
+import org.skife.jdbi.v2.sqlobject.mixins.GetHandle;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+/**
+ * Wraps a SQL object so that each of its calls goes through an {@link AdaptiveConcurrencyLimiter}. Plain reads (the
+ * {@link ReplicaEligible} methods) run at {@link Priority#LOW}, every other method at the priority of the DAO, so a
+ * surge of reads is shed before the writes of a high priority DAO.
+ * <p>
+ * Only failures that point at an overloaded database lower the limit, see {@link #isOverload(Throwable)}. The latency
+ * of default methods, which run a statement per chunk of their input, says nothing about congestion, so they are only
+ * counted in flight. {@link GetHandle} methods are not limited: the handle they hand out holds its connection past the
+ * call, so statements run on it bypass the limiter.
+ */
+public class LimitedSqlObject {
+
+    private LimitedSqlObject() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> sqlObjectType, T delegate, AdaptiveConcurrencyLimiter limiter, Priority daoPriority) {
+        return (T) Proxy.newProxyInstance(sqlObjectType.getClassLoader(), new Class<?>[]{sqlObjectType}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class || method.getDeclaringClass() == GetHandle.class) {
+                return invoke(method, delegate, args);
+            }
+            final boolean timed = !method.isDefault();
+            final long start = limiter.acquire(method.isAnnotationPresent(ReplicaEligible.class) ? Priority.LOW : daoPriority);
+            try {
+                final Object result = invoke(method, delegate, args);
+                limiter.release(start, false, timed);
+                return result;
+            } catch (Throwable t) {
+                limiter.release(start, isOverload(t), timed);
+                throw t;
+            }
+        });
+    }
+
+    /**
+     * Whether a failure tells of an overloaded database (no connection, timeouts, cancelled statements, exhausted
+     * resources) rather than of a bad call such as a constraint violation.
+     */
+    static boolean isOverload(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof UnableToObtainConnectionException || t instanceof SQLTransientException) {
+                return true;
+            }
+            if (t instanceof SQLException && ((SQLException) t).getSQLState() != null) {
+                final String sqlState = ((SQLException) t).getSQLState();
+                // 08 connection exception, 53 insufficient resources, 57 operator intervention (incl. statement timeout)
+                if (sqlState.startsWith("08") || sqlState.startsWith("53") || sqlState.startsWith("57")) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
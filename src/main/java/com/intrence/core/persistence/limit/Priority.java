@@ -0,0 +1,15 @@
+package com.intrence.core.persistence.limit;
+
+/**
+ * How readily a DAO call is shed by {@link AdaptiveConcurrencyLimiter} when the database degrades.
+ */
+public enum Priority {
+    /**
+     * Admitted up to the full limit.
+     */
+    HIGH,
+    /**
+     * Admitted only while the calls in flight leave the high priority share of the limit free.
+     */
+    LOW
+}
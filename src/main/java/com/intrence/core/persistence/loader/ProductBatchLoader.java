@@ -0,0 +1,173 @@
+package com.intrence.core.persistence.loader;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.models.model.Product;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces single product lookups into {@link ProductDao#getProductsByIds(Collection)} queries.
+ * <p>
+ * The first {@link #load(UUID)} after a dispatch opens a batching window; every id requested by any thread until the
+ * window closes, or until {@code maxBatchSize} distinct ids are pending, is fetched with one query. Callers hydrating a
+ * page should issue all their loads before joining any of them (or use {@link #loadAll(Collection)}), otherwise each
+ * lookup waits for its own window.
+ * <p>
+ * Windows are timed on a single scheduler thread, and the queries run on a separate pool of {@code DISPATCH_THREADS},
+ * so slow batches never hold up the closing of the next window.
+ */
+public class ProductBatchLoader implements Managed {
+
+    public static final long DEFAULT_WINDOW_MICROS = 2000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 200;
+    private static final int DISPATCH_THREADS = 4;
+
+    private final ProductDao productDao;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService windows = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("product-batch-loader-window").setDaemon(true).build());
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(DISPATCH_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("product-batch-loader-%d").setDaemon(true).build());
+
+    private Map<UUID, CompletableFuture<Product>> pending = new HashMap<>();
+    private boolean stopped;
+
+    public ProductBatchLoader(ProductDao productDao) {
+        this(productDao, DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public ProductBatchLoader(ProductDao productDao, long windowMicros, int maxBatchSize) {
+        this.productDao = productDao;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return a future completed with the product, or with null when no product has that id; once the loader is
+     * stopped, a future failed with IllegalStateException
+     */
+    public CompletableFuture<Product> load(UUID productId) {
+        final CompletableFuture<Product> product;
+        boolean openWindow = false;
+        Map<UUID, CompletableFuture<Product>> full = null;
+        synchronized (this) {
+            if (stopped) {
+                CompletableFuture<Product> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new IllegalStateException("product batch loader is stopped"));
+                return rejected;
+            }
+            CompletableFuture<Product> existing = pending.get(productId);
+            if (existing != null) {
+                return existing;
+            }
+            product = new CompletableFuture<>();
+            openWindow = pending.isEmpty();
+            pending.put(productId, product);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            }
+        }
+
+        try {
+            if (full != null) {
+                Map<UUID, CompletableFuture<Product>> batch = full;
+                dispatcher.execute(() -> dispatch(batch));
+            } else if (openWindow) {
+                windows.schedule(() -> dispatcher.execute(this::dispatchPending), windowMicros, TimeUnit.MICROSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // stopped since the id was queued: stop() dispatches what is still pending, a full batch is ours to run
+            if (full != null) {
+                dispatch(full);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Loads all ids, joining batches with concurrent callers.
+     *
+     * @return the found products keyed by id, in the order requested
+     */
+    public Map<UUID, Product> loadAll(Collection<UUID> productIds) {
+        Map<UUID, CompletableFuture<Product>> futures = new LinkedHashMap<>();
+        for (UUID productId : productIds) {
+            futures.put(productId, load(productId));
+        }
+        Map<UUID, Product> products = new LinkedHashMap<>();
+        futures.forEach((productId, future) -> {
+            Product product = future.join();
+            if (product != null) {
+                products.put(productId, product);
+            }
+        });
+        return products;
+    }
+
+    public Product get(UUID productId) {
+        return load(productId).join();
+    }
+
+    private void dispatchPending() {
+        Map<UUID, CompletableFuture<Product>> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    private Map<UUID, CompletableFuture<Product>> takePending() {
+        Map<UUID, CompletableFuture<Product>> batch = pending;
+        pending = new HashMap<>();
+        return batch;
+    }
+
+    private void dispatch(Map<UUID, CompletableFuture<Product>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Product> products = productDao.getProductsByIds(new ArrayList<>(batch.keySet()));
+            for (Product product : products) {
+                CompletableFuture<Product> future = batch.remove(product.getUuid());
+                if (future != null) {
+                    future.complete(product);
+                }
+            }
+            batch.values().forEach(future -> future.complete(null));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    @Override
+    public void stop() throws Exception {
+        synchronized (this) {
+            stopped = true;
+        }
+        windows.shutdown();
+        windows.awaitTermination(1, TimeUnit.SECONDS);
+        dispatchPending();
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
@@ -5,47 +5,69 @@ package com.intrence.core.persistence.mapper;
 
 import com.intrence.models.model.*;
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultColumnMapper;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
+/**
+ * Maps `products` rows. Column positions and the timestamp column mapper are resolved on the first row of a result
+ * set and kept on the statement context for the following rows. Prices are parsed by {@link Price#fromJson(String)},
+ * so they read back exactly as the model defines.
+ */
 public class ProductMapper implements ResultSetMapper<Product> {
 
-    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final String COLUMNS_ATTRIBUTE = ProductMapper.class.getName() + ".columns";
 
     @Override
     public Product map(int index, ResultSet resultSet, StatementContext ctx) throws SQLException {
+        final Columns columns = columnsFor(resultSet, ctx);
+        final String sex = resultSet.getString(columns.sex);
+        final String clothingCategory = resultSet.getString(columns.clothingCategory);
         return new Product.Builder()
-                .name(resultSet.getString("name"))
-                .description(resultSet.getString("description"))
-                .designer(resultSet.getString("designer"))
-                .sex(resultSet.getString("sex") == null ? null : Sex.fromSexString(resultSet.getString("sex")))
-                .availableSizes(mapAvailableSizesArrayToSet(resultSet.getArray("available_sizes")))
-                .clothingCategory(resultSet.getString("clothing_category") == null ? null : ClothingCategory.fromClothingCategoryName(resultSet.getString("clothing_category")))
-                .originalPrice(Price.fromJson(resultSet.getString("original_price")))
-                .currentPrice(Price.fromJson(resultSet.getString("current_price")))
-                .isOnSale(resultSet.getBoolean("is_on_sale"))
-                .saleDiscount(resultSet.getInt("sale_discount"))
-                .source(resultSet.getString("source"))
-                .externalLink(resultSet.getString("external_link"))
-                .imageLinks(mapImageLinksArrayToList(resultSet.getArray("image_links")))
-                .createdAt(mapDateTime("created_at", resultSet, ctx))
-                .updatedAt(mapDateTime("updated_at", resultSet, ctx))
+                .uuid(UUID.fromString(resultSet.getString(columns.uuid)))
+                .name(resultSet.getString(columns.name))
+                .description(resultSet.getString(columns.description))
+                .designer(resultSet.getString(columns.designer))
+                .sex(sex == null ? null : Sex.fromSexString(sex))
+                .availableSizes(mapAvailableSizesArrayToSet(resultSet.getArray(columns.availableSizes)))
+                .clothingCategory(clothingCategory == null ? null : ClothingCategory.fromClothingCategoryName(clothingCategory))
+                .originalPrice(Price.fromJson(resultSet.getString(columns.originalPrice)))
+                .currentPrice(Price.fromJson(resultSet.getString(columns.currentPrice)))
+                .isOnSale(resultSet.getBoolean(columns.isOnSale))
+                .saleDiscount(resultSet.getInt(columns.saleDiscount))
+                .source(resultSet.getString(columns.source))
+                .externalLink(resultSet.getString(columns.externalLink))
+                .imageLinks(mapImageLinksArrayToList(resultSet.getArray(columns.imageLinks)))
+                .createdAt(columns.dateTimeMapper.mapColumn(resultSet, columns.createdAt, ctx))
+                .updatedAt(columns.dateTimeMapper.mapColumn(resultSet, columns.updatedAt, ctx))
                 .build();
     }
 
+    private static Columns columnsFor(ResultSet resultSet, StatementContext ctx) throws SQLException {
+        Columns columns = (Columns) ctx.getAttribute(COLUMNS_ATTRIBUTE);
+        if (columns == null || columns.resultSet != resultSet) {
+            columns = new Columns(resultSet, ctx);
+            ctx.setAttribute(COLUMNS_ATTRIBUTE, columns);
+        }
+        return columns;
+    }
+
     private static Set<Size> mapAvailableSizesArrayToSet(Array availableSizes) throws SQLException {
-        Set<Size> availableSizeSet = new HashSet<>();
+        if (availableSizes == null) {
+            return Collections.emptySet();
+        }
         String[] availableSizesArray = (String[]) availableSizes.getArray();
+        Set<Size> availableSizeSet = new HashSet<>(availableSizesArray.length * 2);
         for (String availableSize : availableSizesArray) {
             availableSizeSet.add(Size.fromSizeStandard(availableSize));
         }
@@ -53,12 +75,53 @@ public class ProductMapper implements ResultSetMapper<Product> {
     }
 
     private static List<String> mapImageLinksArrayToList(Array imageLinks) throws SQLException {
+        if (imageLinks == null) {
+            return Collections.emptyList();
+        }
         String[] imageLinksArray = (String[]) imageLinks.getArray();
         return Arrays.asList(imageLinksArray);
     }
 
-    private DateTime mapDateTime(String column, ResultSet resultSet, StatementContext ctx) throws SQLException {
-        return (DateTime) ctx.columnMapperFor(DateTime.class).mapColumn(resultSet, column, ctx);
-    }
+    private static class Columns {
+        private final ResultSet resultSet;
+        private final ResultColumnMapper<DateTime> dateTimeMapper;
+        private final int uuid;
+        private final int name;
+        private final int description;
+        private final int designer;
+        private final int sex;
+        private final int availableSizes;
+        private final int clothingCategory;
+        private final int originalPrice;
+        private final int currentPrice;
+        private final int isOnSale;
+        private final int saleDiscount;
+        private final int source;
+        private final int externalLink;
+        private final int imageLinks;
+        private final int createdAt;
+        private final int updatedAt;
 
+        @SuppressWarnings("unchecked")
+        private Columns(ResultSet resultSet, StatementContext ctx) throws SQLException {
+            this.resultSet = resultSet;
+            this.dateTimeMapper = ctx.columnMapperFor(DateTime.class);
+            this.uuid = resultSet.findColumn("uuid");
+            this.name = resultSet.findColumn("name");
+            this.description = resultSet.findColumn("description");
+            this.designer = resultSet.findColumn("designer");
+            this.sex = resultSet.findColumn("sex");
+            this.availableSizes = resultSet.findColumn("available_sizes");
+            this.clothingCategory = resultSet.findColumn("clothing_category");
+            this.originalPrice = resultSet.findColumn("original_price");
+            this.currentPrice = resultSet.findColumn("current_price");
+            this.isOnSale = resultSet.findColumn("is_on_sale");
+            this.saleDiscount = resultSet.findColumn("sale_discount");
+            this.source = resultSet.findColumn("source");
+            this.externalLink = resultSet.findColumn("external_link");
+            this.imageLinks = resultSet.findColumn("image_links");
+            this.createdAt = resultSet.findColumn("created_at");
+            this.updatedAt = resultSet.findColumn("updated_at");
+        }
+    }
 }
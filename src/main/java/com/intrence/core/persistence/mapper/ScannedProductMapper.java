@@ -0,0 +1,27 @@
+package com.intrence.core.persistence.mapper;
+
+import com.intrence.core.persistence.scan.ScanPosition;
+import com.intrence.core.persistence.scan.ScannedProduct;
+import com.intrence.models.model.Product;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the rows of product scans, which select the updated_at of each row as text in {@link #SCAN_UPDATED_AT} as well:
+ * the product only carries it to the millisecond, the column and so the scan position to the microsecond.
+ */
+public class ScannedProductMapper implements ResultSetMapper<ScannedProduct> {
+
+    public static final String SCAN_UPDATED_AT = "scan_updated_at";
+
+    private final ProductMapper productMapper = new ProductMapper();
+
+    @Override
+    public ScannedProduct map(int index, ResultSet resultSet, StatementContext ctx) throws SQLException {
+        Product product = productMapper.map(index, resultSet, ctx);
+        return new ScannedProduct(product, new ScanPosition(resultSet.getString(SCAN_UPDATED_AT), product.getUuid()));
+    }
+}
@@ -0,0 +1,174 @@
+package com.intrence.core.persistence.postgres;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.intrence.core.persistence.common.DaoMethodTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps a pooled DataSource to make pool saturation visible before it turns into timeouts:
+ * <ul>
+ * <li>{@code <pool>.connection-wait}, the time every getConnection() call waited for a connection,</li>
+ * <li>{@code <pool>.pending}, the threads waiting right now, and {@code <pool>.pending-1m}, the number of waiting
+ * threads seen by acquisitions, a bounded sample biased toward about the last minute,</li>
+ * <li>{@code <pool>.saturated}, marked for every wait longer than the threshold.</li>
+ * </ul>
+ * When a wait exceeds the threshold, the DAO methods (see {@link DaoMethodTag}) that spent the most time waiting since
+ * the previous report are logged, at most once per report interval.
+ */
+public class PoolSaturationMonitor implements DataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolSaturationMonitor.class);
+
+    private static final String UNTAGGED = "untagged";
+    private static final int TOP_WAITERS = 5;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // sampled on every getConnection(), so the reservoir is fixed in size; this alpha weights roughly the last minute
+    private static final int PENDING_SAMPLE_SIZE = 1028;
+    private static final double PENDING_SAMPLE_ALPHA = 0.075;
+
+    private final DataSource delegate;
+    private final String poolName;
+    private final long thresholdNanos;
+    private final Timer connectionWait;
+    private final Histogram pendingHistory;
+    private final Meter saturated;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime() - REPORT_INTERVAL_NANOS);
+    private final ConcurrentMap<String, WaitStats> waitsByMethod = new ConcurrentHashMap<>();
+
+    public PoolSaturationMonitor(DataSource delegate, String poolName, long thresholdMillis, MetricRegistry metrics) {
+        this.delegate = delegate;
+        this.poolName = poolName;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.connectionWait = metrics.timer(MetricRegistry.name(poolName, "connection-wait"));
+        this.pendingHistory = metrics.register(MetricRegistry.name(poolName, "pending-1m"),
+                new Histogram(new ExponentiallyDecayingReservoir(PENDING_SAMPLE_SIZE, PENDING_SAMPLE_ALPHA)));
+        this.saturated = metrics.meter(MetricRegistry.name(poolName, "saturated"));
+        metrics.register(MetricRegistry.name(poolName, "pending"), (Gauge<Integer>) pending::get);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long start = begin();
+        try {
+            return delegate.getConnection();
+        } finally {
+            end(start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        final long start = begin();
+        try {
+            return delegate.getConnection(username, password);
+        } finally {
+            end(start);
+        }
+    }
+
+    private long begin() {
+        pendingHistory.update(pending.incrementAndGet());
+        return System.nanoTime();
+    }
+
+    private void end(long start) {
+        final long waited = System.nanoTime() - start;
+        pending.decrementAndGet();
+        connectionWait.update(waited, TimeUnit.NANOSECONDS);
+
+        final String method = DaoMethodTag.current();
+        waitsByMethod.computeIfAbsent(method == null ? UNTAGGED : method, m -> new WaitStats()).add(waited);
+
+        if (waited > thresholdNanos) {
+            saturated.mark();
+            maybeReport();
+        }
+    }
+
+    private void maybeReport() {
+        final long now = System.nanoTime();
+        final long last = lastReportNanos.get();
+        if (now - last < REPORT_INTERVAL_NANOS || !lastReportNanos.compareAndSet(last, now)) {
+            return;
+        }
+        final List<Map.Entry<String, WaitStats>> waits = new ArrayList<>(waitsByMethod.entrySet());
+        waitsByMethod.clear();
+        waits.sort((a, b) -> Long.compare(b.getValue().nanos.sum(), a.getValue().nanos.sum()));
+
+        final StringBuilder top = new StringBuilder();
+        for (Map.Entry<String, WaitStats> wait : waits.subList(0, Math.min(TOP_WAITERS, waits.size()))) {
+            top.append("\n  ").append(wait.getKey())
+                    .append(": waited ").append(TimeUnit.NANOSECONDS.toMillis(wait.getValue().nanos.sum())).append("ms")
+                    .append(" over ").append(wait.getValue().count.sum()).append(" acquisitions");
+        }
+        log.warn("{} is saturated: a connection took more than {}ms, {} threads waiting. Top waiting DAO methods:{}",
+                poolName, TimeUnit.NANOSECONDS.toMillis(thresholdNanos), pending.get(), top);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private static class WaitStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void add(long waited) {
+            count.increment();
+            nanos.add(waited);
+        }
+    }
+}
@@ -19,6 +19,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -34,6 +37,7 @@ public class PostgresConfig {
     private static final Logger log = LoggerFactory.getLogger(PostgresConfig.class);
     private static final AtomicInteger sessionPoolCounter = new AtomicInteger(0);
     private static final AtomicInteger transactionPoolCounter = new AtomicInteger(0);
+    private static final AtomicInteger replicaPoolCounter = new AtomicInteger(0);
 
     private static final String MIN_POSTGRES_VERSION = "9.4.6";
     public static final String POSTGRES_STRING = "postgres";
@@ -47,6 +51,23 @@ public class PostgresConfig {
     public static final String SESSION_PORT_STRING = "sessionPort";
     public static final String TRANSACTION_POOL_SIZE_STRING = "transactionPoolSize";
     public static final String TRANSACTION_PORT_STRING = "transactionPort";
+    public static final String PRODUCT_CACHE_MAX_SIZE_STRING = "productCacheMaxSize";
+    public static final String PRODUCT_CACHE_TTL_SECONDS_STRING = "productCacheTtlSeconds";
+    public static final String REPLICA_HOSTS_STRING = "replicaHosts";
+    public static final String REPLICA_PORT_STRING = "replicaPort";
+    public static final String REPLICA_POOL_SIZE_STRING = "replicaPoolSize";
+    public static final String REPLICA_MAX_LAG_MILLIS_STRING = "replicaMaxLagMillis";
+    public static final String CONCURRENCY_LIMITER_ENABLED_STRING = "concurrencyLimiterEnabled";
+    public static final String CONCURRENCY_LIMITER_LATENCY_THRESHOLD_MILLIS_STRING = "concurrencyLimiterLatencyThresholdMillis";
+    public static final String POOL_WAIT_THRESHOLD_MILLIS_STRING = "poolWaitThresholdMillis";
+    public static final String DEFAULT_STATEMENT_TIMEOUT_MILLIS_STRING = "defaultStatementTimeoutMillis";
+    public static final String STATEMENT_TIMEOUTS_STRING = "statementTimeouts";
+    public static final String SLOW_QUERY_THRESHOLD_MILLIS_STRING = "slowQueryThresholdMillis";
+    public static final String SLOW_QUERY_EXPLAIN_SAMPLE_RATE_STRING = "slowQueryExplainSampleRate";
+    public static final String SLOW_QUERY_PLAN_CAPACITY_STRING = "slowQueryPlanCapacity";
+    public static final String ADMIN_PREPARED_STATEMENTS_STRING = "adminPreparedStatements";
+    public static final String SESSION_PREPARED_STATEMENTS_STRING = "sessionPreparedStatements";
+    public static final String TRANSACTION_PREPARED_STATEMENTS_STRING = "transactionPreparedStatements";
 
 
     private Optional<PostgresCredential> app;
@@ -60,9 +81,27 @@ public class PostgresConfig {
     private volatile int sessionPort = 6432;
     private volatile int transactionPoolSize = 50;
     private volatile int transactionPort = 5432;
+    private volatile long productCacheMaxSize = 10000;
+    private volatile long productCacheTtlSeconds = 60;
+    private volatile long poolWaitThresholdMillis = 100;
+    private volatile long defaultStatementTimeoutMillis = 10000;
+    private Map<String, Long> statementTimeouts = Collections.emptyMap();
+    private volatile long slowQueryThresholdMillis = 500;
+    private volatile double slowQueryExplainSampleRate = 0.05;
+    private volatile int slowQueryPlanCapacity = 50;
+    private volatile boolean concurrencyLimiterEnabled = true;
+    private volatile long concurrencyLimiterLatencyThresholdMillis = 500;
+    private List<String> replicaHosts = Collections.emptyList();
+    private volatile int replicaPort = 5432;
+    private volatile int replicaPoolSize = 20;
+    private volatile long replicaMaxLagMillis = 5000;
+    private volatile PreparedStatementSettings adminPreparedStatements = PreparedStatementSettings.UNPREPARED;
+    private volatile PreparedStatementSettings sessionPreparedStatements = PreparedStatementSettings.UNPREPARED;
+    private volatile PreparedStatementSettings transactionPreparedStatements = PreparedStatementSettings.UNPREPARED;
     private DataSource adminDataSource;
     private DataSource sessionDataSource;
     private DataSource txDataSource;
+    private List<DataSource> replicaDataSources;
 
     public PostgresConfig(final String host,
                           final String database,
@@ -97,6 +136,23 @@ public class PostgresConfig {
         this.sessionPort = builder.sessionPort;
         this.transactionPoolSize = builder.transactionPoolSize;
         this.transactionPort = builder.transactionPort;
+        this.productCacheMaxSize = builder.productCacheMaxSize;
+        this.productCacheTtlSeconds = builder.productCacheTtlSeconds;
+        this.poolWaitThresholdMillis = builder.poolWaitThresholdMillis;
+        this.defaultStatementTimeoutMillis = builder.defaultStatementTimeoutMillis;
+        this.statementTimeouts = builder.statementTimeouts;
+        this.slowQueryThresholdMillis = builder.slowQueryThresholdMillis;
+        this.slowQueryExplainSampleRate = builder.slowQueryExplainSampleRate;
+        this.slowQueryPlanCapacity = builder.slowQueryPlanCapacity;
+        this.concurrencyLimiterEnabled = builder.concurrencyLimiterEnabled;
+        this.concurrencyLimiterLatencyThresholdMillis = builder.concurrencyLimiterLatencyThresholdMillis;
+        this.replicaHosts = builder.replicaHosts;
+        this.replicaPort = builder.replicaPort;
+        this.replicaPoolSize = builder.replicaPoolSize;
+        this.replicaMaxLagMillis = builder.replicaMaxLagMillis;
+        this.adminPreparedStatements = builder.adminPreparedStatements;
+        this.sessionPreparedStatements = builder.sessionPreparedStatements;
+        this.transactionPreparedStatements = builder.transactionPreparedStatements;
     }
 
     /**
@@ -110,7 +166,7 @@ public class PostgresConfig {
         Preconditions.checkState(this.dba.isPresent(), "need dba credentials to create admin datasource");
 
         final PGSimpleDataSource ds = new PGSimpleDataSource();
-        ds.setPrepareThreshold(0);
+        this.adminPreparedStatements.applyTo(ds);
         ds.setServerName(this.host);
         ds.setDatabaseName(this.database);
         ds.setUser(this.dba.get().getUser());
@@ -178,7 +234,7 @@ public class PostgresConfig {
         Preconditions.checkState(this.app.isPresent(), "App user credentials not available");
 
         final PGSimpleDataSource unpooled = new PGSimpleDataSource();
-        unpooled.setPrepareThreshold(0);
+        this.sessionPreparedStatements.applyTo(unpooled);
         unpooled.setServerName(this.host);
         unpooled.setDatabaseName(this.database);
         unpooled.setUser(this.app.get().getUser());
@@ -255,7 +311,7 @@ public class PostgresConfig {
         Preconditions.checkState(this.app.isPresent(), "need app credentials to create transaction pooled datasource");
 
         final PGSimpleDataSource unpooled = new PGSimpleDataSource();
-        unpooled.setPrepareThreshold(0);
+        this.transactionPreparedStatements.applyTo(unpooled);
         unpooled.setServerName(this.host);
         unpooled.setDatabaseName(this.database);
         unpooled.setUser(this.app.get().getUser());
@@ -280,6 +336,54 @@ public class PostgresConfig {
         return this.txDataSource;
     }
 
+    /**
+     * Creates one pooled DataSource per configured replica host, each of `replicaPoolSize` connections on
+     * `replicaPort`, with the app user. Replicas are assumed to sit behind pgbouncer in transaction mode like the
+     * transaction port, so they share its prepared statement settings. Returns an empty list when no replica is
+     * configured.
+     * <p>
+     * If {@code lifecycle} is present, the pools will be shut down when the server shuts down.
+     */
+    public synchronized List<DataSource> buildReplicaPooledDataSources(final Optional<MetricRegistry> metrics,
+                                                                       final Optional<HealthCheckRegistry> health,
+                                                                       final Optional<LifecycleEnvironment> lifecycle) {
+        if (this.replicaDataSources != null) {
+            return this.replicaDataSources;
+        }
+        Preconditions.checkState(this.replicaHosts.isEmpty() || this.app.isPresent(), "need app credentials to create replica pooled datasources");
+
+        final List<DataSource> dataSources = new ArrayList<>();
+        for (final String replicaHost : this.replicaHosts) {
+            final PGSimpleDataSource unpooled = new PGSimpleDataSource();
+            this.transactionPreparedStatements.applyTo(unpooled);
+            unpooled.setServerName(replicaHost);
+            unpooled.setDatabaseName(this.database);
+            unpooled.setUser(this.app.get().getUser());
+            unpooled.setPassword(this.app.get().getPass());
+            unpooled.setPortNumber(this.replicaPort);
+            unpooled.setAssumeMinServerVersion(MIN_POSTGRES_VERSION);
+            unpooled.setReadOnly(true);
+            configureSslMode(unpooled);
+            addConnectionProperties(unpooled);
+
+            final HikariConfig config = new HikariConfig();
+            config.setDataSource(unpooled);
+            config.setMaximumPoolSize(this.replicaPoolSize);
+            config.setReadOnly(true);
+            config.setPoolName("postgres-replica-pool-" + replicaPoolCounter.getAndIncrement());
+
+            metrics.ifPresent(config::setMetricRegistry);
+            health.ifPresent(config::setHealthCheckRegistry);
+
+            log.info("built datasource {} against {}", config.getPoolName(), replicaHost);
+            HikariDataSource hikariDataSource = new HikariDataSource(config);
+            lifecycle.ifPresent(lifecycleEnvironment -> this.registerDataSourceInEnvironment(hikariDataSource, lifecycleEnvironment));
+            dataSources.add(hikariDataSource);
+        }
+        this.replicaDataSources = Collections.unmodifiableList(dataSources);
+        return this.replicaDataSources;
+    }
+
     public void setAdminPort(final int adminPort) {
         this.adminPort = adminPort;
     }
@@ -300,6 +404,184 @@ public class PostgresConfig {
         this.transactionPort = transactionPort;
     }
 
+    public void setProductCacheMaxSize(final long productCacheMaxSize) {
+        this.productCacheMaxSize = productCacheMaxSize;
+    }
+
+    public void setProductCacheTtlSeconds(final long productCacheTtlSeconds) {
+        this.productCacheTtlSeconds = productCacheTtlSeconds;
+    }
+
+    public int getTransactionPoolSize() {
+        return this.transactionPoolSize;
+    }
+
+    public void setConcurrencyLimiterEnabled(final boolean concurrencyLimiterEnabled) {
+        this.concurrencyLimiterEnabled = concurrencyLimiterEnabled;
+    }
+
+    public void setConcurrencyLimiterLatencyThresholdMillis(final long concurrencyLimiterLatencyThresholdMillis) {
+        this.concurrencyLimiterLatencyThresholdMillis = concurrencyLimiterLatencyThresholdMillis;
+    }
+
+    /**
+     * Whether DAO calls on the transaction pool go through an adaptive concurrency limit instead of queueing in the
+     * pool until its connection timeout.
+     */
+    public boolean isConcurrencyLimiterEnabled() {
+        return this.concurrencyLimiterEnabled;
+    }
+
+    /**
+     * DAO calls slower than this lower the adaptive concurrency limit.
+     */
+    public long getConcurrencyLimiterLatencyThresholdMillis() {
+        return this.concurrencyLimiterLatencyThresholdMillis;
+    }
+
+    public void setReplicaHosts(final List<String> replicaHosts) {
+        this.replicaHosts = replicaHosts == null ? Collections.emptyList() : replicaHosts;
+    }
+
+    public void setReplicaPort(final int replicaPort) {
+        this.replicaPort = replicaPort;
+    }
+
+    public void setReplicaPoolSize(final int replicaPoolSize) {
+        this.replicaPoolSize = replicaPoolSize;
+    }
+
+    public void setReplicaMaxLagMillis(final long replicaMaxLagMillis) {
+        this.replicaMaxLagMillis = replicaMaxLagMillis;
+    }
+
+    public List<String> getReplicaHosts() {
+        return this.replicaHosts;
+    }
+
+    /**
+     * A replica lagging further behind the primary than this is not read from until it catches up.
+     */
+    public long getReplicaMaxLagMillis() {
+        return this.replicaMaxLagMillis;
+    }
+
+    public void setPoolWaitThresholdMillis(final long poolWaitThresholdMillis) {
+        this.poolWaitThresholdMillis = poolWaitThresholdMillis;
+    }
+
+    /**
+     * Connection waits longer than this count as pool saturation, see {@link PoolSaturationMonitor}.
+     */
+    public long getPoolWaitThresholdMillis() {
+        return this.poolWaitThresholdMillis;
+    }
+
+    public void setDefaultStatementTimeoutMillis(final long defaultStatementTimeoutMillis) {
+        this.defaultStatementTimeoutMillis = defaultStatementTimeoutMillis;
+    }
+
+    public void setStatementTimeouts(final Map<String, Long> statementTimeouts) {
+        this.statementTimeouts = statementTimeouts == null ? Collections.emptyMap() : statementTimeouts;
+    }
+
+    /**
+     * The statement timeout of DAO methods without one of their own; zero for none.
+     */
+    public long getDefaultStatementTimeoutMillis() {
+        return this.defaultStatementTimeoutMillis;
+    }
+
+    /**
+     * Statement timeouts by DAO method, e.g. {@code ProductDao.getProductById}, overriding their
+     * {@link com.intrence.core.persistence.annotation.StatementTimeout}.
+     */
+    public Map<String, Long> getStatementTimeouts() {
+        return this.statementTimeouts;
+    }
+
+    public void setSlowQueryThresholdMillis(final long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    public void setSlowQueryExplainSampleRate(final double slowQueryExplainSampleRate) {
+        this.slowQueryExplainSampleRate = slowQueryExplainSampleRate;
+    }
+
+    public void setSlowQueryPlanCapacity(final int slowQueryPlanCapacity) {
+        this.slowQueryPlanCapacity = slowQueryPlanCapacity;
+    }
+
+    /**
+     * Statements running longer than this are logged as slow, see
+     * {@link com.intrence.core.persistence.jdbi.SlowQueryLog}.
+     */
+    public long getSlowQueryThresholdMillis() {
+        return this.slowQueryThresholdMillis;
+    }
+
+    /**
+     * The fraction of slow SELECTs explained again, on the pool that ran them.
+     */
+    public double getSlowQueryExplainSampleRate() {
+        return this.slowQueryExplainSampleRate;
+    }
+
+    /**
+     * How many captured slow statement plans are kept.
+     */
+    public int getSlowQueryPlanCapacity() {
+        return this.slowQueryPlanCapacity;
+    }
+
+    /**
+     * Applies to data sources built after the call.
+     */
+    public void setAdminPreparedStatements(final PreparedStatementSettings adminPreparedStatements) {
+        this.adminPreparedStatements = adminPreparedStatements;
+    }
+
+    /**
+     * Applies to data sources built after the call.
+     */
+    public void setSessionPreparedStatements(final PreparedStatementSettings sessionPreparedStatements) {
+        this.sessionPreparedStatements = sessionPreparedStatements;
+    }
+
+    /**
+     * Applies to data sources built after the call. Keep the prepare threshold at 0 while the transaction port goes
+     * through pgbouncer in transaction mode.
+     */
+    public void setTransactionPreparedStatements(final PreparedStatementSettings transactionPreparedStatements) {
+        this.transactionPreparedStatements = transactionPreparedStatements;
+    }
+
+    public PreparedStatementSettings getAdminPreparedStatements() {
+        return this.adminPreparedStatements;
+    }
+
+    public PreparedStatementSettings getSessionPreparedStatements() {
+        return this.sessionPreparedStatements;
+    }
+
+    public PreparedStatementSettings getTransactionPreparedStatements() {
+        return this.transactionPreparedStatements;
+    }
+
+    /**
+     * Maximum number of products kept by the in-process product cache; 0 disables the cache.
+     */
+    public long getProductCacheMaxSize() {
+        return this.productCacheMaxSize;
+    }
+
+    /**
+     * How long a cached product may be served before it is read from the database again.
+     */
+    public long getProductCacheTtlSeconds() {
+        return this.productCacheTtlSeconds;
+    }
+
     public String getSslMode() {
         return this.sslMode;
     }
@@ -355,6 +637,23 @@ public class PostgresConfig {
         volatile int sessionPort = 6432;
         volatile int transactionPoolSize = 50;
         volatile int transactionPort = 5432;
+        volatile long productCacheMaxSize = 10000;
+        volatile long productCacheTtlSeconds = 60;
+        volatile long poolWaitThresholdMillis = 100;
+        volatile long defaultStatementTimeoutMillis = 10000;
+        private Map<String, Long> statementTimeouts = Collections.emptyMap();
+        volatile long slowQueryThresholdMillis = 500;
+        volatile double slowQueryExplainSampleRate = 0.05;
+        volatile int slowQueryPlanCapacity = 50;
+        volatile boolean concurrencyLimiterEnabled = true;
+        volatile long concurrencyLimiterLatencyThresholdMillis = 500;
+        private List<String> replicaHosts = Collections.emptyList();
+        volatile int replicaPort = 5432;
+        volatile int replicaPoolSize = 20;
+        volatile long replicaMaxLagMillis = 5000;
+        volatile PreparedStatementSettings adminPreparedStatements = PreparedStatementSettings.UNPREPARED;
+        volatile PreparedStatementSettings sessionPreparedStatements = PreparedStatementSettings.UNPREPARED;
+        volatile PreparedStatementSettings transactionPreparedStatements = PreparedStatementSettings.UNPREPARED;
 
         public Builder() {
         }
@@ -425,6 +724,108 @@ public class PostgresConfig {
             return this;
         }
 
+        @JsonSetter
+        public Builder productCacheMaxSize(long productCacheMaxSize) {
+            this.productCacheMaxSize = productCacheMaxSize;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder productCacheTtlSeconds(long productCacheTtlSeconds) {
+            this.productCacheTtlSeconds = productCacheTtlSeconds;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder concurrencyLimiterEnabled(boolean concurrencyLimiterEnabled) {
+            this.concurrencyLimiterEnabled = concurrencyLimiterEnabled;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder concurrencyLimiterLatencyThresholdMillis(long concurrencyLimiterLatencyThresholdMillis) {
+            this.concurrencyLimiterLatencyThresholdMillis = concurrencyLimiterLatencyThresholdMillis;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder replicaHosts(List<String> replicaHosts) {
+            this.replicaHosts = replicaHosts == null ? Collections.emptyList() : replicaHosts;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder replicaPort(int replicaPort) {
+            this.replicaPort = replicaPort;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder replicaPoolSize(int replicaPoolSize) {
+            this.replicaPoolSize = replicaPoolSize;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder replicaMaxLagMillis(long replicaMaxLagMillis) {
+            this.replicaMaxLagMillis = replicaMaxLagMillis;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder poolWaitThresholdMillis(long poolWaitThresholdMillis) {
+            this.poolWaitThresholdMillis = poolWaitThresholdMillis;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder defaultStatementTimeoutMillis(long defaultStatementTimeoutMillis) {
+            this.defaultStatementTimeoutMillis = defaultStatementTimeoutMillis;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder statementTimeouts(Map<String, Long> statementTimeouts) {
+            this.statementTimeouts = statementTimeouts == null ? Collections.emptyMap() : statementTimeouts;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder slowQueryThresholdMillis(long slowQueryThresholdMillis) {
+            this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder slowQueryExplainSampleRate(double slowQueryExplainSampleRate) {
+            this.slowQueryExplainSampleRate = slowQueryExplainSampleRate;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder slowQueryPlanCapacity(int slowQueryPlanCapacity) {
+            this.slowQueryPlanCapacity = slowQueryPlanCapacity;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder adminPreparedStatements(PreparedStatementSettings adminPreparedStatements) {
+            this.adminPreparedStatements = adminPreparedStatements;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder sessionPreparedStatements(PreparedStatementSettings sessionPreparedStatements) {
+            this.sessionPreparedStatements = sessionPreparedStatements;
+            return this;
+        }
+
+        @JsonSetter
+        public Builder transactionPreparedStatements(PreparedStatementSettings transactionPreparedStatements) {
+            this.transactionPreparedStatements = transactionPreparedStatements;
+            return this;
+        }
+
         public PostgresConfig build() {
             return new PostgresConfig(this);
         }
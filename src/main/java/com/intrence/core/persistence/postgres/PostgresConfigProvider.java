@@ -7,10 +7,19 @@ import com.google.inject.Provider;
 import com.intrence.config.ConfigProvider;
 import com.intrence.config.collection.ConfigMap;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 public class PostgresConfigProvider implements Provider<PostgresConfig> {
 
+    // pgjdbc's socket read timeout, in seconds
+    static final String SOCKET_TIMEOUT_PROPERTY = "socketTimeout";
+
     @Override
     public PostgresConfig get() {
         PostgresConfig.Builder builder = new PostgresConfig.Builder();
@@ -33,8 +42,143 @@ public class PostgresConfigProvider implements Provider<PostgresConfig> {
                 PostgresCredential appCredential = new PostgresCredential(appConfigMap.getString("user"), appConfigMap.getString("pass"));
                 builder.app(Optional.of(appCredential));
             }
+            if (postgresConfigMap.containsKey(PostgresConfig.PRODUCT_CACHE_MAX_SIZE_STRING)) {
+                builder.productCacheMaxSize(getLong(postgresConfigMap, PostgresConfig.PRODUCT_CACHE_MAX_SIZE_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.PRODUCT_CACHE_TTL_SECONDS_STRING)) {
+                builder.productCacheTtlSeconds(getLong(postgresConfigMap, PostgresConfig.PRODUCT_CACHE_TTL_SECONDS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.CONCURRENCY_LIMITER_ENABLED_STRING)) {
+                builder.concurrencyLimiterEnabled(Boolean.parseBoolean(String.valueOf(postgresConfigMap.get(PostgresConfig.CONCURRENCY_LIMITER_ENABLED_STRING))));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.CONCURRENCY_LIMITER_LATENCY_THRESHOLD_MILLIS_STRING)) {
+                builder.concurrencyLimiterLatencyThresholdMillis(getLong(postgresConfigMap, PostgresConfig.CONCURRENCY_LIMITER_LATENCY_THRESHOLD_MILLIS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.REPLICA_HOSTS_STRING)) {
+                builder.replicaHosts(getStringList(postgresConfigMap, PostgresConfig.REPLICA_HOSTS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.REPLICA_PORT_STRING)) {
+                builder.replicaPort((int) getLong(postgresConfigMap, PostgresConfig.REPLICA_PORT_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.REPLICA_POOL_SIZE_STRING)) {
+                builder.replicaPoolSize((int) getLong(postgresConfigMap, PostgresConfig.REPLICA_POOL_SIZE_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.REPLICA_MAX_LAG_MILLIS_STRING)) {
+                builder.replicaMaxLagMillis(getLong(postgresConfigMap, PostgresConfig.REPLICA_MAX_LAG_MILLIS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.POOL_WAIT_THRESHOLD_MILLIS_STRING)) {
+                builder.poolWaitThresholdMillis(getLong(postgresConfigMap, PostgresConfig.POOL_WAIT_THRESHOLD_MILLIS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.DEFAULT_STATEMENT_TIMEOUT_MILLIS_STRING)) {
+                builder.defaultStatementTimeoutMillis(getLong(postgresConfigMap, PostgresConfig.DEFAULT_STATEMENT_TIMEOUT_MILLIS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.STATEMENT_TIMEOUTS_STRING)) {
+                builder.statementTimeouts(getLongMap(postgresConfigMap, PostgresConfig.STATEMENT_TIMEOUTS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.SLOW_QUERY_THRESHOLD_MILLIS_STRING)) {
+                builder.slowQueryThresholdMillis(getLong(postgresConfigMap, PostgresConfig.SLOW_QUERY_THRESHOLD_MILLIS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.SLOW_QUERY_EXPLAIN_SAMPLE_RATE_STRING)) {
+                builder.slowQueryExplainSampleRate(Double.parseDouble(String.valueOf(postgresConfigMap.get(PostgresConfig.SLOW_QUERY_EXPLAIN_SAMPLE_RATE_STRING))));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.SLOW_QUERY_PLAN_CAPACITY_STRING)) {
+                builder.slowQueryPlanCapacity((int) getLong(postgresConfigMap, PostgresConfig.SLOW_QUERY_PLAN_CAPACITY_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.ADMIN_PREPARED_STATEMENTS_STRING)) {
+                builder.adminPreparedStatements(getPreparedStatementSettings(postgresConfigMap, PostgresConfig.ADMIN_PREPARED_STATEMENTS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.SESSION_PREPARED_STATEMENTS_STRING)) {
+                builder.sessionPreparedStatements(getPreparedStatementSettings(postgresConfigMap, PostgresConfig.SESSION_PREPARED_STATEMENTS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.TRANSACTION_PREPARED_STATEMENTS_STRING)) {
+                builder.transactionPreparedStatements(getPreparedStatementSettings(postgresConfigMap, PostgresConfig.TRANSACTION_PREPARED_STATEMENTS_STRING));
+            }
+            if (postgresConfigMap.containsKey(PostgresConfig.CONNECTION_PROPERTIES_STRING)) {
+                builder.connectionProperties(getStringMap(postgresConfigMap, PostgresConfig.CONNECTION_PROPERTIES_STRING));
+            }
+        }
+        PostgresConfig postgresConfig = builder.build();
+        checkStatementTimeouts(postgresConfig);
+        return postgresConfig;
+    }
+
+    /**
+     * Rejects statement timeouts that the driver's socket timeout would cut short: the driver gives up on the read and
+     * discards the connection, while the statement keeps running on the server.
+     */
+    static void checkStatementTimeouts(PostgresConfig postgresConfig) {
+        String socketTimeout = postgresConfig.getConnectionProperties().get(SOCKET_TIMEOUT_PROPERTY);
+        long socketTimeoutMillis = socketTimeout == null ? 0 : TimeUnit.SECONDS.toMillis(Long.parseLong(socketTimeout.trim()));
+        if (socketTimeoutMillis <= 0) {
+            return;
+        }
+        if (postgresConfig.getDefaultStatementTimeoutMillis() >= socketTimeoutMillis) {
+            throw new IllegalArgumentException(String.format("%s of %dms must be below the %ss %s",
+                    PostgresConfig.DEFAULT_STATEMENT_TIMEOUT_MILLIS_STRING, postgresConfig.getDefaultStatementTimeoutMillis(),
+                    socketTimeout, SOCKET_TIMEOUT_PROPERTY));
+        }
+        for (Map.Entry<String, Long> timeout : postgresConfig.getStatementTimeouts().entrySet()) {
+            if (timeout.getValue() >= socketTimeoutMillis) {
+                throw new IllegalArgumentException(String.format("%s of %dms for %s must be below the %ss %s",
+                        PostgresConfig.STATEMENT_TIMEOUTS_STRING, timeout.getValue(), timeout.getKey(), socketTimeout,
+                        SOCKET_TIMEOUT_PROPERTY));
+            }
+        }
+    }
+
+    private static long getLong(ConfigMap configMap, String key) {
+        return Long.parseLong(String.valueOf(configMap.get(key)));
+    }
+
+    /**
+     * Reads a list given either as a YAML sequence or as a comma separated string.
+     */
+    private static List<String> getStringList(ConfigMap configMap, String key) {
+        Object value = configMap.get(key);
+        List<String> values = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                values.add(String.valueOf(element).trim());
+            }
+        } else if (value != null) {
+            for (String element : String.valueOf(value).split(",")) {
+                if (!element.trim().isEmpty()) {
+                    values.add(element.trim());
+                }
+            }
         }
-        return builder.build();
+        return values;
+    }
+
+    private static Map<String, String> getStringMap(ConfigMap configMap, String key) {
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) configMap.get(key)).entrySet()) {
+            values.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+        return values;
+    }
+
+    private static Map<String, Long> getLongMap(ConfigMap configMap, String key) {
+        Map<String, Long> values = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) configMap.get(key)).entrySet()) {
+            values.put(String.valueOf(entry.getKey()), Long.parseLong(String.valueOf(entry.getValue())));
+        }
+        return values;
+    }
+
+    private static PreparedStatementSettings getPreparedStatementSettings(ConfigMap configMap, String key) {
+        ConfigMap settingsMap = (ConfigMap) configMap.get(key);
+        return new PreparedStatementSettings(
+                getOptionalInteger(settingsMap, PreparedStatementSettings.PREPARE_THRESHOLD_STRING),
+                getOptionalInteger(settingsMap, PreparedStatementSettings.PREPARED_STATEMENT_CACHE_QUERIES_STRING),
+                getOptionalInteger(settingsMap, PreparedStatementSettings.PREPARED_STATEMENT_CACHE_SIZE_MIB_STRING),
+                settingsMap.containsKey(PreparedStatementSettings.BINARY_TRANSFER_STRING)
+                        ? Boolean.valueOf(String.valueOf(settingsMap.get(PreparedStatementSettings.BINARY_TRANSFER_STRING)))
+                        : null);
+    }
+
+    private static Integer getOptionalInteger(ConfigMap configMap, String key) {
+        return configMap.containsKey(key) ? Integer.valueOf(String.valueOf(configMap.get(key))) : null;
     }
 
 }
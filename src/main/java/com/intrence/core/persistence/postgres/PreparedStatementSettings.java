@@ -0,0 +1,69 @@
+package com.intrence.core.persistence.postgres;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.postgresql.ds.common.BaseDataSource;
+
+/**
+ * How the driver prepares statements on the connections of one pool.
+ * <p>
+ * With a {@code prepareThreshold} of 0 every statement is parsed and planned by the server on each execution, which is
+ * the only safe choice behind pgbouncer in transaction mode: consecutive transactions may land on different server
+ * connections that never saw the prepare. A positive threshold switches a statement to a named server-side prepared
+ * statement after that many executions on the same connection, and the driver keeps up to
+ * {@code preparedStatementCacheQueries} of them per connection, so hot queries skip the parse and plan.
+ */
+public class PreparedStatementSettings {
+
+    public static final String PREPARE_THRESHOLD_STRING = "prepareThreshold";
+    public static final String PREPARED_STATEMENT_CACHE_QUERIES_STRING = "preparedStatementCacheQueries";
+    public static final String PREPARED_STATEMENT_CACHE_SIZE_MIB_STRING = "preparedStatementCacheSizeMiB";
+    public static final String BINARY_TRANSFER_STRING = "binaryTransfer";
+
+    private static final int DEFAULT_CACHE_QUERIES = 256;
+    private static final int DEFAULT_CACHE_SIZE_MIB = 5;
+
+    /**
+     * No server-side prepared statements.
+     */
+    public static final PreparedStatementSettings UNPREPARED = new PreparedStatementSettings(0, null, null, null);
+
+    private final int prepareThreshold;
+    private final int preparedStatementCacheQueries;
+    private final int preparedStatementCacheSizeMiB;
+    private final boolean binaryTransfer;
+
+    @JsonCreator
+    public PreparedStatementSettings(@JsonProperty(PREPARE_THRESHOLD_STRING) Integer prepareThreshold,
+                                     @JsonProperty(PREPARED_STATEMENT_CACHE_QUERIES_STRING) Integer preparedStatementCacheQueries,
+                                     @JsonProperty(PREPARED_STATEMENT_CACHE_SIZE_MIB_STRING) Integer preparedStatementCacheSizeMiB,
+                                     @JsonProperty(BINARY_TRANSFER_STRING) Boolean binaryTransfer) {
+        this.prepareThreshold = prepareThreshold == null ? 0 : prepareThreshold;
+        this.preparedStatementCacheQueries = preparedStatementCacheQueries == null ? DEFAULT_CACHE_QUERIES : preparedStatementCacheQueries;
+        this.preparedStatementCacheSizeMiB = preparedStatementCacheSizeMiB == null ? DEFAULT_CACHE_SIZE_MIB : preparedStatementCacheSizeMiB;
+        this.binaryTransfer = binaryTransfer == null || binaryTransfer;
+    }
+
+    void applyTo(BaseDataSource dataSource) {
+        dataSource.setPrepareThreshold(this.prepareThreshold);
+        dataSource.setPreparedStatementCacheQueries(this.preparedStatementCacheQueries);
+        dataSource.setPreparedStatementCacheSizeMiB(this.preparedStatementCacheSizeMiB);
+        dataSource.setBinaryTransfer(this.binaryTransfer);
+    }
+
+    public int getPrepareThreshold() {
+        return prepareThreshold;
+    }
+
+    public int getPreparedStatementCacheQueries() {
+        return preparedStatementCacheQueries;
+    }
+
+    public int getPreparedStatementCacheSizeMiB() {
+        return preparedStatementCacheSizeMiB;
+    }
+
+    public boolean isBinaryTransfer() {
+        return binaryTransfer;
+    }
+}
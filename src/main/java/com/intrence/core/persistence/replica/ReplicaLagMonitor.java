@@ -0,0 +1,128 @@
+package com.intrence.core.persistence.replica;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Polls the replication lag of every replica and tells which replicas are fresh enough to be read from.
+ * <p>
+ * A replica that has replayed everything it received counts as up to date, even when the last replayed transaction is
+ * old because the primary has been idle. A replica that cannot be queried counts as infinitely stale until the next
+ * successful poll. Until the first poll completes, every replica counts as stale, so reads start on the primary.
+ */
+public class ReplicaLagMonitor implements Managed {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+    private static final String LAG_MILLIS_SQL = "SELECT CASE WHEN pg_last_%1$s_receive_%2$s() = pg_last_%1$s_replay_%2$s() THEN 0 "
+            + "ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0) END";
+    // PostgreSQL 10 renamed the pg_last_xlog_*_location functions to pg_last_wal_*_lsn
+    private static final String LAG_MILLIS_SQL_9 = String.format(LAG_MILLIS_SQL, "xlog", "location");
+    private static final String LAG_MILLIS_SQL_10 = String.format(LAG_MILLIS_SQL, "wal", "lsn");
+
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+    private final List<DataSource> replicas;
+    private final long maxLagMillis;
+    private final long pollIntervalMillis;
+    private final AtomicLongArray lagMillis;
+    // replicas whose last poll failed, only touched by the polling thread
+    private final boolean[] failing;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(List<DataSource> replicas, long maxLagMillis, MetricRegistry metrics) {
+        this(replicas, maxLagMillis, DEFAULT_POLL_INTERVAL_MILLIS, metrics);
+    }
+
+    public ReplicaLagMonitor(List<DataSource> replicas, long maxLagMillis, long pollIntervalMillis, MetricRegistry metrics) {
+        this.replicas = replicas;
+        this.maxLagMillis = maxLagMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        this.failing = new boolean[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            final int replica = i;
+            lagMillis.set(replica, UNKNOWN_LAG);
+            metrics.register(MetricRegistry.name(ReplicaLagMonitor.class, "replica-" + replica, "lag-ms"),
+                    (Gauge<Long>) () -> lagMillis.get(replica));
+        }
+    }
+
+    /**
+     * @return whether replica {@code replica} (an index into the monitored list) was within the allowed lag at the
+     * last poll
+     */
+    public boolean isFresh(int replica) {
+        return lagMillis.get(replica) <= maxLagMillis;
+    }
+
+    long getLagMillis(int replica) {
+        return lagMillis.get(replica);
+    }
+
+    void poll() {
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag;
+            try (Connection connection = replicas.get(i).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagMillisSql(connection.getMetaData().getDatabaseMajorVersion()))) {
+                lag = resultSet.next() ? resultSet.getLong(1) : UNKNOWN_LAG;
+                failing[i] = false;
+            } catch (SQLException | RuntimeException e) {
+                // once per outage rather than once per poll
+                if (!failing[i]) {
+                    log.warn("could not read the replication lag of replica {}, it counts as stale until it can be read", i, e);
+                    failing[i] = true;
+                } else {
+                    log.debug("could not read the replication lag of replica {}: {}", i, e.toString());
+                }
+                lag = UNKNOWN_LAG;
+            }
+            long previous = lagMillis.getAndSet(i, lag);
+            if ((previous <= maxLagMillis) != (lag <= maxLagMillis)) {
+                log.info("replica {} is now {} (lag {}ms, allowed {}ms)", i, lag <= maxLagMillis ? "fresh" : "stale", lag, maxLagMillis);
+            }
+        }
+    }
+
+    static String lagMillisSql(int serverMajorVersion) {
+        return serverMajorVersion >= 10 ? LAG_MILLIS_SQL_10 : LAG_MILLIS_SQL_9;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (scheduler != null || replicas.isEmpty()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("replica-lag-monitor-%d")
+                .setDaemon(true)
+                .build());
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
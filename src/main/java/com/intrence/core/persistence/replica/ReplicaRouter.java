@@ -0,0 +1,58 @@
+package com.intrence.core.persistence.replica;
+
+import com.intrence.core.persistence.annotation.ReplicaEligible;
+import org.skife.jdbi.v2.exceptions.UnableToObtainConnectionException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the {@link ReplicaEligible} methods of a DAO to replicas, round robin over the replicas that
+ * {@link ReplicaLagMonitor} considers fresh, and every other method to the primary.
+ * <p>
+ * When no replica is fresh, or the chosen replica has no connection to give, the call is served by the primary.
+ */
+public class ReplicaRouter {
+
+    private ReplicaRouter() {
+    }
+
+    /**
+     * @param replicas one DAO per replica, in the order of the data sources given to {@code lagMonitor}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T route(Class<T> daoType, T primary, List<T> replicas, ReplicaLagMonitor lagMonitor) {
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+        final AtomicInteger next = new AtomicInteger();
+        return (T) Proxy.newProxyInstance(daoType.getClassLoader(), new Class<?>[]{daoType}, (proxy, method, args) -> {
+            if (!method.isAnnotationPresent(ReplicaEligible.class)) {
+                return invoke(method, primary, args);
+            }
+            final int start = next.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                final int replica = (start + i) % replicas.size();
+                if (lagMonitor.isFresh(replica)) {
+                    try {
+                        return invoke(method, replicas.get(replica), args);
+                    } catch (UnableToObtainConnectionException e) {
+                        break;
+                    }
+                }
+            }
+            return invoke(method, primary, args);
+        });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
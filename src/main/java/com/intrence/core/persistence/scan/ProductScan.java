@@ -0,0 +1,71 @@
+package com.intrence.core.persistence.scan;
+
+import com.intrence.models.model.Product;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.ResultIterator;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A product scan in progress. It pins a pooled connection and an open transaction until closed, so always close it,
+ * preferably with try-with-resources.
+ */
+public class ProductScan implements Iterator<Product>, Closeable {
+    private final Handle handle;
+    private final ResultIterator<ScannedProduct> products;
+    private ScanPosition position;
+    private boolean closed;
+
+    ProductScan(Handle handle, ResultIterator<ScannedProduct> products, ScanPosition position) {
+        this.handle = handle;
+        this.products = products;
+        this.position = position;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && products.hasNext();
+    }
+
+    @Override
+    public Product next() {
+        ScannedProduct product = products.next();
+        position = product.getPosition();
+        return product.getProduct();
+    }
+
+    /**
+     * Position of the last product returned by {@link #next()}, or the position the scan was started after.
+     */
+    public ScanPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * The remaining products as a sequential stream; closing the stream closes the scan.
+     */
+    public Stream<Product> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            products.close();
+            // the scan only read, there is nothing to commit
+            handle.rollback();
+        } finally {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.intrence.core.persistence.scan;
+
+import com.intrence.core.persistence.dao.ProductDao;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Walks the whole `products` table without holding it in memory. Each scan opens a transaction on its own
+ * connection, which lets the driver read through a server-side cursor `fetchSize` rows at a time, and pages by
+ * keyset on (updated_at, uuid) so an interrupted scan can resume from its last {@link ScanPosition}.
+ * <p>
+ * Scans should run against the session pool: the cursor lives as long as the scan and is not meant to share
+ * pgbouncer transaction mode connections. Products without an updated_at (the column is nullable) are not visited.
+ */
+public class ProductScanner {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final DBI dbi;
+
+    public ProductScanner(DBI dbi) {
+        this.dbi = dbi;
+    }
+
+    public ProductScan scan() {
+        return scan(DEFAULT_FETCH_SIZE);
+    }
+
+    public ProductScan scan(int fetchSize) {
+        return scanAfter(null, fetchSize);
+    }
+
+    /**
+     * Starts a scan strictly after {@code position}, or from the beginning when it is null.
+     */
+    public ProductScan scanAfter(ScanPosition position, int fetchSize) {
+        Handle handle = dbi.open();
+        try {
+            handle.begin();
+            ProductDao productDao = handle.attach(ProductDao.class);
+            ResultIterator<ScannedProduct> products = position == null
+                    ? productDao.scanProducts(fetchSize)
+                    : productDao.scanProductsAfter(position.getUpdatedAt(), position.getUuid(), fetchSize);
+            return new ProductScan(handle, products, position);
+        } catch (RuntimeException e) {
+            if (handle.isInTransaction()) {
+                handle.rollback();
+            }
+            handle.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.intrence.core.persistence.scan;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+/**
+ * Keyset position of a product scan: the (updated_at, uuid) of the last product handed out. Persist it to resume a
+ * scan after a crash.
+ * <p>
+ * updated_at is kept as the column's text, e.g. {@code 2018-04-03 04:31:09.128123}, at the microsecond precision of
+ * the column: a position rounded to the millisecond would hand out again every row updated within that millisecond.
+ */
+public class ScanPosition {
+    private final String updatedAt;
+    private final UUID uuid;
+
+    @JsonCreator
+    public ScanPosition(@JsonProperty("updatedAt") String updatedAt,
+                        @JsonProperty("uuid") UUID uuid) {
+        this.updatedAt = updatedAt;
+        this.uuid = uuid;
+    }
+
+    @JsonProperty
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @JsonProperty
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s, %s)", updatedAt, uuid);
+    }
+}
@@ -0,0 +1,24 @@
+package com.intrence.core.persistence.scan;
+
+import com.intrence.models.model.Product;
+
+/**
+ * A product read by a scan, with the scan position it was read at.
+ */
+public class ScannedProduct {
+    private final Product product;
+    private final ScanPosition position;
+
+    public ScannedProduct(Product product, ScanPosition position) {
+        this.product = product;
+        this.position = position;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public ScanPosition getPosition() {
+        return position;
+    }
+}
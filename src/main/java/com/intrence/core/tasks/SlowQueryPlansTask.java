@@ -0,0 +1,37 @@
+package com.intrence.core.tasks;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.intrence.core.persistence.jdbi.SlowQueryLog;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+
+/**
+ * Prints the plans {@link SlowQueryLog} captured for slow statements, newest first. With {@code clear=true} the
+ * buffer is emptied after printing.
+ * <p>
+ * {@code curl -X POST http://localhost:<admin port>/tasks/slow-query-plans}
+ */
+public class SlowQueryPlansTask extends Task {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryPlansTask(SlowQueryLog slowQueryLog) {
+        super("slow-query-plans");
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) {
+        for (SlowQueryLog.CapturedPlan plan : slowQueryLog.getCapturedPlans()) {
+            output.println("-- " + plan.getCapturedAt() + " " + plan.getStatementName() + " took " + plan.getElapsedMillis() + "ms");
+            output.println("-- binds [" + plan.getBindSummary() + "]");
+            output.println(plan.getSql());
+            output.println(plan.getPlan());
+            output.println();
+        }
+        if (parameters.get("clear").contains("true")) {
+            slowQueryLog.clear();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Bulk loads COPY into this table before merging into products. It is unlogged, so staging a
+-- full feed writes no WAL and the table is simply emptied if the server crashes mid-load.
+CREATE UNLOGGED TABLE IF NOT EXISTS products_staging (LIKE products INCLUDING DEFAULTS);
+
+CREATE INDEX IF NOT EXISTS products_staging_source_idx ON products_staging (source);
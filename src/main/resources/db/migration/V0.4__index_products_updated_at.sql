@@ -0,0 +1,2 @@
+-- Keyset scans walk the catalog in (updated_at, uuid) order.
+CREATE INDEX products_updated_at_uuid_idx ON products (updated_at, uuid);
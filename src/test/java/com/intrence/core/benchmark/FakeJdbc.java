@@ -0,0 +1,140 @@
+package com.intrence.core.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intrence.core.persistence.annotation.BindProduct;
+import com.intrence.models.model.Product;
+import io.dropwizard.jdbi.args.JodaDateTimeMapper;
+import org.joda.time.DateTime;
+import org.skife.jdbi.v2.StatementContext;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stand-ins for the few JDBC and JDBI interfaces the benchmarks exercise, so that mapping and binding code
+ * can be measured without a database. Every call is a map lookup; both sides of a comparison pay the same overhead.
+ */
+final class FakeJdbc {
+
+    private FakeJdbc() {
+    }
+
+    /**
+     * The `products` row the database would return for {@code product}, positioned on that single row.
+     */
+    static ResultSet productRow(Product product) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("uuid", product.getUuid().toString());
+        row.put("name", product.getName());
+        row.put("description", product.getDescription());
+        row.put("designer", product.getDesigner());
+        row.put("sex", product.getSex().getSexString());
+        row.put("available_sizes", BindProduct.ProductBinderFactory.convertSizeIntoStandards(product.getAvailableSizes()).toArray(new String[0]));
+        row.put("clothing_category", product.getClothingCategory().getName());
+        row.put("original_price", objectMapper.writeValueAsString(product.getOriginalPrice()));
+        row.put("current_price", objectMapper.writeValueAsString(product.getCurrentPrice()));
+        row.put("is_on_sale", product.getIsOnSale());
+        row.put("sale_discount", product.getSaleDiscount());
+        row.put("source", product.getSource());
+        row.put("external_link", product.getExternalLink());
+        row.put("image_links", product.getImageLinks().toArray(new String[0]));
+        row.put("created_at", new Timestamp(product.getCreatedAt().getMillis()));
+        row.put("updated_at", new Timestamp(product.getUpdatedAt().getMillis()));
+        return resultSet(row);
+    }
+
+    static ResultSet resultSet(Map<String, Object> row) {
+        final List<String> labels = new ArrayList<>(row.keySet());
+        final Object[] values = row.values().toArray();
+        return (ResultSet) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            if (method.getName().equals("findColumn")) {
+                return labels.indexOf(args[0]) + 1;
+            }
+            if (method.getName().equals("wasNull")) {
+                return false;
+            }
+            if (args == null || args.length == 0) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            Object value = args[0] instanceof Integer ? values[(Integer) args[0] - 1] : values[labels.indexOf(args[0])];
+            switch (method.getName()) {
+                case "getString":
+                    return value == null ? null : value.toString();
+                case "getInt":
+                    return value == null ? 0 : (Integer) value;
+                case "getBoolean":
+                    return value != null && (Boolean) value;
+                case "getTimestamp":
+                case "getObject":
+                    return value;
+                case "getArray":
+                    return value == null ? null : array((Object[]) value);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    static StatementContext statementContext() {
+        return statementContext(null, null);
+    }
+
+    /**
+     * A context for a statement issued by {@code sqlObjectMethod} of {@code sqlObjectType}.
+     */
+    static StatementContext statementContext(Class<?> sqlObjectType, Method sqlObjectMethod) {
+        final Map<String, Object> attributes = new HashMap<>();
+        final JodaDateTimeMapper dateTimeMapper = new JodaDateTimeMapper();
+        return (StatementContext) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{StatementContext.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAttribute":
+                    return attributes.get(args[0]);
+                case "setAttribute":
+                    return attributes.put((String) args[0], args[1]);
+                case "columnMapperFor":
+                    return args[0] == DateTime.class ? dateTimeMapper : null;
+                case "getSqlObjectType":
+                    return sqlObjectType;
+                case "getSqlObjectMethod":
+                    return sqlObjectMethod;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * A statement that accepts and drops every bound parameter.
+     */
+    static PreparedStatement preparedStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            if (method.getReturnType() == int.class) {
+                return 0;
+            }
+            return null;
+        });
+    }
+
+    private static Array array(Object[] elements) {
+        return (Array) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{Array.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getArray")) {
+                return elements;
+            }
+            throw new SQLException("unsupported: " + method.getName());
+        });
+    }
+}
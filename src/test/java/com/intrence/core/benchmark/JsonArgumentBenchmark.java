@@ -0,0 +1,70 @@
+package com.intrence.core.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intrence.core.persistence.common.JsonArgumentFactory;
+import com.intrence.core.persistence.common.JsonObject;
+import com.intrence.core.util.ExampleProvider;
+import com.intrence.models.model.Price;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.util.PGobject;
+import org.skife.jdbi.v2.StatementContext;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds one price the way every product write does, through {@link JsonArgumentFactory} and through the previous
+ * writeValueAsString + PGobject path. Run {@link #main(String[])} and compare gc.alloc.rate.norm, the bytes allocated
+ * per bind.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonArgumentBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonArgumentFactory<Price> factory = new JsonArgumentFactory<>(objectMapper);
+    private final PreparedStatement statement = FakeJdbc.preparedStatement();
+    private final StatementContext ctx = FakeJdbc.statementContext();
+    private JsonObject<Price> price;
+
+    @Setup
+    public void setUp() {
+        price = new JsonObject<>(ExampleProvider.getExampleProduct().getCurrentPrice());
+    }
+
+    @Benchmark
+    public void cachedWriter() throws Exception {
+        factory.build(JsonObject.class, price, ctx).apply(1, statement, ctx);
+    }
+
+    @Benchmark
+    public void pgObject() throws Exception {
+        PGobject pgObject = new PGobject();
+        pgObject.setType("jsonb");
+        pgObject.setValue(objectMapper.writeValueAsString(price.get()));
+        statement.setObject(1, pgObject);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JsonArgumentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.intrence.core.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the hot ProductDao reads against a live database, once with every statement parsed and planned by the server
+ * (prepareThreshold 0, what the pools used unconditionally) and once with server-side prepared statements. Like JDBI,
+ * every call creates a new PreparedStatement; the driver's statement cache is what lets it reuse the server prepare.
+ * <p>
+ * Needs the products table of a local database, reached directly or through the pgbouncer session port. Connection
+ * settings are read from the system properties bench.pg.url, bench.pg.user and bench.pg.pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreparedStatementBenchmark {
+
+    private static final String GET_PRODUCT_BY_ID_SQL = "SELECT * FROM products WHERE uuid = ?";
+    private static final String GET_PRODUCTS_BY_IDS_SQL = "SELECT * FROM products WHERE uuid = ANY(?::uuid[])";
+    private static final String LOOKUP_PRODUCT_BY_ID_SQL = "SELECT exists (SELECT 1 FROM products WHERE uuid = ? LIMIT 1)";
+
+    @Param({"0", "1"})
+    public int prepareThreshold;
+
+    private Connection connection;
+    private UUID[] uuids;
+
+    @Setup
+    public void setUp() throws SQLException {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getProperty("bench.pg.url", "jdbc:postgresql://127.0.0.1:6432/cdg_pg"));
+        dataSource.setUser(System.getProperty("bench.pg.user", "cdg_dev"));
+        dataSource.setPassword(System.getProperty("bench.pg.pass", "cdg_dev"));
+        dataSource.setPrepareThreshold(prepareThreshold);
+        connection = dataSource.getConnection();
+
+        uuids = new UUID[20];
+        try (PreparedStatement statement = connection.prepareStatement("SELECT uuid FROM products LIMIT 20");
+             ResultSet resultSet = statement.executeQuery()) {
+            for (int i = 0; i < uuids.length; i++) {
+                uuids[i] = resultSet.next() ? (UUID) resultSet.getObject(1) : UUID.randomUUID();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int getProductById() throws SQLException {
+        return query(GET_PRODUCT_BY_ID_SQL, uuids[0]);
+    }
+
+    @Benchmark
+    public int getProductsByIds() throws SQLException {
+        Array array = connection.createArrayOf("uuid", uuids);
+        return query(GET_PRODUCTS_BY_IDS_SQL, array);
+    }
+
+    @Benchmark
+    public int lookupProductById() throws SQLException {
+        return query(LOOKUP_PRODUCT_BY_ID_SQL, uuids[1]);
+    }
+
+    private int query(String sql, Object parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, parameter);
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PreparedStatementBenchmark.class.getSimpleName())
+                .jvmArgsAppend(System.getProperties().stringPropertyNames().stream()
+                        .filter(name -> name.startsWith("bench.pg."))
+                        .map(name -> "-D" + name + "=" + System.getProperty(name))
+                        .toArray(String[]::new))
+                .build()).run();
+    }
+}
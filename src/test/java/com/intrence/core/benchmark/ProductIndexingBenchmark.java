@@ -0,0 +1,64 @@
+package com.intrence.core.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.intrence.core.elasticsearch.ProductDocumentSerializer;
+import com.intrence.core.util.ExampleProvider;
+import com.intrence.models.model.Product;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the index request of one product through {@link ProductDocumentSerializer}, in JSON and SMILE, and through
+ * the writeValueAsString path the String upsertDocument overloads take. Run {@link #main(String[])} and compare
+ * gc.alloc.rate.norm, the bytes allocated per indexed document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductIndexingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JodaModule());
+    private final ProductDocumentSerializer jsonSerializer = new ProductDocumentSerializer(objectMapper, XContentType.JSON);
+    private final ProductDocumentSerializer smileSerializer = new ProductDocumentSerializer(objectMapper, XContentType.SMILE);
+    private final Product product = ExampleProvider.getExampleProduct();
+
+    @Benchmark
+    public IndexRequest string() throws Exception {
+        return new IndexRequest("products", "doc", "1").source(objectMapper.writeValueAsString(product), XContentType.JSON);
+    }
+
+    @Benchmark
+    public IndexRequest jsonBytes() {
+        return new IndexRequest("products", "doc", "1").source(jsonSerializer.serialize(product), XContentType.JSON);
+    }
+
+    @Benchmark
+    public IndexRequest smileBytes() {
+        return new IndexRequest("products", "doc", "1").source(smileSerializer.serialize(product), XContentType.SMILE);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProductIndexingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
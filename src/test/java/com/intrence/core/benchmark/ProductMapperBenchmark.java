@@ -0,0 +1,64 @@
+package com.intrence.core.benchmark;
+
+import com.intrence.core.persistence.mapper.ProductMapper;
+import com.intrence.core.util.ExampleProvider;
+import com.intrence.models.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.skife.jdbi.v2.StatementContext;
+
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps the same row over and over, as happens for every row of a large listing query, with the column-caching
+ * {@link ProductMapper} and with the previous by-name mapper. Run {@link #main(String[])} from the test classpath; the
+ * GC profiler reports the allocation per mapped row next to the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapper();
+    private final LegacyProductMapper legacyProductMapper = new LegacyProductMapper();
+    private ResultSet row;
+    private StatementContext ctx;
+
+    @Setup
+    public void setUp() throws Exception {
+        row = FakeJdbc.productRow(ExampleProvider.getExampleProduct());
+        ctx = FakeJdbc.statementContext();
+    }
+
+    @Benchmark
+    public Product indexedMapper() throws Exception {
+        return productMapper.map(0, row, ctx);
+    }
+
+    @Benchmark
+    public Product legacyMapper() throws Exception {
+        return legacyProductMapper.map(0, row, ctx);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProductMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.intrence.core.concurrent;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BlockingCallExecutorTest {
+
+    @Test
+    public void testLimitsConcurrentCalls() throws Exception {
+        BlockingCallExecutor executor = new BlockingCallExecutor("test", 2, new MetricRegistry());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final int call = i;
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return call;
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertTrue(maxRunning.get() <= 2);
+        executor.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReportsQueuedCallsAsWaiting() throws Exception {
+        MetricRegistry metrics = new MetricRegistry();
+        BlockingCallExecutor executor = new BlockingCallExecutor("test", 1, metrics);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = executor.submit(() -> true);
+        CompletableFuture<Boolean> third = executor.submit(() -> true);
+
+        Gauge<Integer> waiting = metrics.getGauges().get(MetricRegistry.name(BlockingCallExecutor.class, "test", "waiting"));
+        Assert.assertEquals(Integer.valueOf(2), waiting.getValue());
+        release.countDown();
+        Assert.assertTrue(first.get(5, TimeUnit.SECONDS) && second.get(5, TimeUnit.SECONDS) && third.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Integer.valueOf(0), waiting.getValue());
+        executor.stop();
+    }
+
+    @Test
+    public void testCompletesExceptionally() throws Exception {
+        BlockingCallExecutor executor = new BlockingCallExecutor("test", 1, new MetricRegistry());
+        CompletableFuture<Object> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.stop();
+    }
+}
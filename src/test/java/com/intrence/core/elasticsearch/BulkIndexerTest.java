@@ -0,0 +1,88 @@
+package com.intrence.core.elasticsearch;
+
+import com.codahale.metrics.MetricRegistry;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkIndexerTest {
+
+    private final ThreadPool threadPool = new ThreadPool(Settings.builder().put("node.name", "bulk-indexer-test").build());
+
+    @After
+    public void tearDown() {
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWaitsForRoomWhenFull() throws Exception {
+        ElasticSearchConfiguration conf = mock(ElasticSearchConfiguration.class);
+        when(conf.getBulkActions()).thenReturn(2);
+        when(conf.getBulkSizeMb()).thenReturn(5L);
+        when(conf.getBulkFlushIntervalMillis()).thenReturn(60000L);
+        when(conf.getBulkConcurrentRequests()).thenReturn(1);
+        when(conf.getBulkMaxPendingActions()).thenReturn(3);
+        when(conf.getBulkEnqueueTimeoutMillis()).thenReturn(50L);
+        when(conf.getBulkRetryInitialDelayMillis()).thenReturn(10L);
+        when(conf.getBulkMaxRetries()).thenReturn(1);
+        when(conf.getBulkDrainTimeoutSeconds()).thenReturn(5L);
+
+        BlockingQueue<ActionListener<BulkResponse>> inFlight = new LinkedBlockingQueue<>();
+        BlockingQueue<BulkRequest> sent = new LinkedBlockingQueue<>();
+        BulkIndexer bulkIndexer = new BulkIndexer((request, listener) -> {
+            sent.add(request);
+            inFlight.add(listener);
+        }, threadPool, conf, new MetricRegistry());
+
+        Assert.assertTrue(bulkIndexer.index("products", "doc", "1", "{}"));
+        Assert.assertTrue(bulkIndexer.index("products", "doc", "2", "{}"));
+        Assert.assertTrue(bulkIndexer.delete("products", "doc", "3"));
+        Assert.assertEquals(3, bulkIndexer.getPendingActions());
+        Assert.assertFalse(bulkIndexer.index("products", "doc", "4", "{}"));
+
+        inFlight.poll(5, TimeUnit.SECONDS).onResponse(succeeded(2));
+        Assert.assertEquals(1, bulkIndexer.getPendingActions());
+        Assert.assertTrue(bulkIndexer.index("products", "doc", "4", "{}"));
+
+        Thread drain = new Thread(() -> {
+            try {
+                inFlight.poll(5, TimeUnit.SECONDS).onResponse(succeeded(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        drain.start();
+        bulkIndexer.stop();
+        drain.join();
+
+        Assert.assertEquals(0, bulkIndexer.getPendingActions());
+        Assert.assertEquals(2, sent.size());
+        Assert.assertEquals(2, sent.poll().numberOfActions());
+        Assert.assertEquals(2, sent.poll().numberOfActions());
+    }
+
+    private static BulkResponse succeeded(int items) {
+        BulkItemResponse[] responses = new BulkItemResponse[items];
+        for (int i = 0; i < items; i++) {
+            responses[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new IndexResponse(new ShardId("products", "_na_", 0), "doc", String.valueOf(i), 1, 1, 1, true));
+        }
+        return new BulkResponse(responses, 1);
+    }
+}
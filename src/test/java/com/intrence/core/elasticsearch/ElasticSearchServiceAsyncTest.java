@@ -0,0 +1,83 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ElasticSearchServiceAsyncTest {
+
+    private static ElasticSearchService elasticSearchService;
+
+    @BeforeClass
+    public static void setUp() {
+        ElasticSearchConfiguration conf = mock(ElasticSearchConfiguration.class);
+        when(conf.getClusterName()).thenReturn("elasticsearch-async-test");
+        when(conf.getNodesToConnect()).thenReturn("localhost");
+        elasticSearchService = new ElasticSearchService(conf);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        elasticSearchService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompletesWithResponse() throws Exception {
+        BulkResponse response = new BulkResponse(new BulkItemResponse[0], 1);
+        BulkRequestBuilder bulk = mock(BulkRequestBuilder.class);
+        doAnswer(invocation -> {
+            ((ActionListener<BulkResponse>) invocation.getArguments()[0]).onResponse(response);
+            return null;
+        }).when(bulk).execute(any(ActionListener.class));
+
+        Assert.assertSame(response, elasticSearchService.doBulkProcessingAsync(bulk, TimeValue.timeValueSeconds(5)).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWrapsFailure() throws Exception {
+        IllegalStateException failure = new IllegalStateException("node disconnected");
+        BulkRequestBuilder bulk = mock(BulkRequestBuilder.class);
+        doAnswer(invocation -> {
+            ((ActionListener<BulkResponse>) invocation.getArguments()[0]).onFailure(failure);
+            return null;
+        }).when(bulk).execute(any(ActionListener.class));
+
+        try {
+            elasticSearchService.doBulkProcessingAsync(bulk, null).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getMessage().startsWith("ElasticSearchException"));
+            Assert.assertSame(failure, e.getCause().getCause());
+        }
+    }
+
+    @Test
+    public void testTimesOut() throws Exception {
+        CompletableFuture<BulkResponse> future = elasticSearchService.doBulkProcessingAsync(mock(BulkRequestBuilder.class),
+                TimeValue.timeValueMillis(20));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getCause() instanceof TimeoutException);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.get.GetResult;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ElasticSearchServiceBatchTest {
+
+    @Test
+    public void testDocumentResultsKeepOrderAndTellMissingFromFailed() {
+        IllegalStateException shardDown = new IllegalStateException("shard down");
+        MultiGetResponse response = new MultiGetResponse(new MultiGetItemResponse[]{
+                found("b"),
+                new MultiGetItemResponse(new GetResponse(new GetResult("products", "doc", "x", -1, false, null, null)), null),
+                new MultiGetItemResponse(null, new MultiGetResponse.Failure("products", "doc", "y", shardDown)),
+                found("a")});
+
+        Map<String, DocumentResult> documents = ElasticSearchService.documentResults(response);
+
+        Assert.assertEquals(Arrays.asList("b", "x", "y", "a"), new ArrayList<>(documents.keySet()));
+        Assert.assertTrue(documents.get("a").isFound());
+        Assert.assertEquals("{\"id\":\"a\"}", documents.get("a").getResponse().getSourceAsString());
+        Assert.assertFalse(documents.get("x").isFound());
+        Assert.assertFalse(documents.get("x").isFailed());
+        Assert.assertFalse(documents.get("y").isFound());
+        Assert.assertTrue(documents.get("y").isFailed());
+        Assert.assertSame(shardDown, documents.get("y").getFailure().getCause());
+    }
+
+    @Test
+    public void testSearchResultsReportFailuresPerSearch() {
+        SearchHits hits = new SearchHits(new SearchHit[]{new SearchHit(1)}, 1, 1);
+        SearchResponse searchResponse = mock(SearchResponse.class);
+        when(searchResponse.getHits()).thenReturn(hits);
+        IllegalArgumentException failure = new IllegalArgumentException("no such index");
+
+        List<SearchResult> results = ElasticSearchService.searchResults(new MultiSearchResponse(new MultiSearchResponse.Item[]{
+                new MultiSearchResponse.Item(null, failure),
+                new MultiSearchResponse.Item(searchResponse, null)}));
+
+        Assert.assertTrue(results.get(0).isFailed());
+        Assert.assertSame(failure, results.get(0).getFailure().getCause());
+        Assert.assertFalse(results.get(1).isFailed());
+        Assert.assertSame(hits, results.get(1).getHits());
+    }
+
+    @Test
+    public void testSearchSpecEquality() {
+        SearchSpec spec = new SearchSpec.Builder().index("products").documentType("doc")
+                .query(QueryBuilders.termQuery("designer", "acne")).limit(10).fieldsToInclude("name").build();
+        SearchSpec same = new SearchSpec.Builder().index("products").documentType("doc")
+                .query(QueryBuilders.termQuery("designer", "acne")).limit(10).fieldsToInclude("name").build();
+        SearchSpec other = new SearchSpec.Builder().index("products").documentType("doc")
+                .query(QueryBuilders.termQuery("designer", "acne")).limit(20).fieldsToInclude("name").build();
+
+        Assert.assertEquals(spec, same);
+        Assert.assertEquals(spec.hashCode(), same.hashCode());
+        Assert.assertNotEquals(spec, other);
+    }
+
+    @Test
+    public void testSearchSpecCopiesFieldArrays() {
+        String[] fields = {"name"};
+        SearchSpec spec = new SearchSpec.Builder().index("products").fieldsToInclude(fields).build();
+        int hashCode = spec.hashCode();
+
+        fields[0] = "designer";
+        spec.getFieldsToInclude()[0] = "designer";
+
+        Assert.assertEquals(hashCode, spec.hashCode());
+        Assert.assertArrayEquals(new String[]{"name"}, spec.getFieldsToInclude());
+    }
+
+    private static MultiGetItemResponse found(String id) {
+        return new MultiGetItemResponse(new GetResponse(new GetResult("products", "doc", id, 1, true,
+                new BytesArray("{\"id\":\"" + id + "\"}"), null)), null);
+    }
+}
@@ -0,0 +1,51 @@
+package com.intrence.core.elasticsearch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.intrence.core.util.ExampleProvider;
+import com.intrence.models.model.Product;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class ProductDocumentSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JodaModule());
+    private final Product product = ExampleProvider.getExampleProduct();
+
+    @Test
+    public void testJsonMatchesObjectMapper() throws Exception {
+        BytesReference source = new ProductDocumentSerializer(objectMapper, XContentType.JSON).serialize(product);
+        Assert.assertEquals(objectMapper.writeValueAsString(product), source.utf8ToString());
+    }
+
+    @Test
+    public void testBinaryFormatsCarryTheSameDocument() {
+        Map<String, Object> json = toMap(new ProductDocumentSerializer(objectMapper, XContentType.JSON).serialize(product), XContentType.JSON);
+        Assert.assertEquals(json, toMap(new ProductDocumentSerializer(objectMapper, XContentType.SMILE).serialize(product), XContentType.SMILE));
+        Assert.assertEquals(json, toMap(new ProductDocumentSerializer(objectMapper, XContentType.CBOR).serialize(product), XContentType.CBOR));
+    }
+
+    @Test
+    public void testSourcesDoNotShareTheBuffer() throws Exception {
+        ProductDocumentSerializer serializer = new ProductDocumentSerializer(objectMapper, XContentType.JSON);
+        BytesReference first = serializer.serialize(product);
+        serializer.serialize(null);
+        Assert.assertEquals(objectMapper.writeValueAsString(product), first.utf8ToString());
+        Assert.assertArrayEquals("null".getBytes(StandardCharsets.UTF_8), BytesReference.toBytes(serializer.serialize(null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsYaml() {
+        new ProductDocumentSerializer(objectMapper, XContentType.YAML);
+    }
+
+    private static Map<String, Object> toMap(BytesReference source, XContentType contentType) {
+        return XContentHelper.convertToMap(source, false, contentType).v2();
+    }
+}
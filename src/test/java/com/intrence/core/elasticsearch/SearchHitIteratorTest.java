@@ -0,0 +1,74 @@
+package com.intrence.core.elasticsearch;
+
+import org.elasticsearch.search.SearchHit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchHitIteratorTest {
+
+    @Test
+    public void testFetchesPagesLazilyAndClosesAtTheEnd() {
+        FakePages pages = new FakePages(hits(0, 2), hits(2, 2), hits(4, 1), new SearchHit[0]);
+        SearchHitIterator iterator = new SearchHitIterator(pages);
+        Assert.assertEquals(0, pages.fetched.get());
+
+        List<Integer> docIds = new ArrayList<>();
+        while (iterator.hasNext()) {
+            docIds.add(iterator.next().docId());
+        }
+
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), docIds);
+        Assert.assertEquals(4, pages.fetched.get());
+        Assert.assertEquals(1, pages.closed.get());
+        iterator.close();
+        Assert.assertEquals(1, pages.closed.get());
+    }
+
+    @Test
+    public void testCloseStopsEarly() {
+        FakePages pages = new FakePages(hits(0, 2), hits(2, 2));
+        SearchHitIterator iterator = new SearchHitIterator(pages);
+        Assert.assertEquals(0, iterator.next().docId());
+        iterator.close();
+
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(1, pages.fetched.get());
+        Assert.assertEquals(1, pages.closed.get());
+    }
+
+    private static SearchHit[] hits(int from, int count) {
+        SearchHit[] hits = new SearchHit[count];
+        for (int i = 0; i < count; i++) {
+            hits[i] = new SearchHit(from + i);
+        }
+        return hits;
+    }
+
+    private static class FakePages implements SearchHitIterator.PageSource {
+        private final Deque<SearchHit[]> pages;
+        private final AtomicInteger fetched = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+
+        private FakePages(SearchHit[]... pages) {
+            this.pages = new ArrayDeque<>(Arrays.asList(pages));
+        }
+
+        @Override
+        public SearchHit[] nextPage() {
+            fetched.incrementAndGet();
+            return pages.pop();
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+}
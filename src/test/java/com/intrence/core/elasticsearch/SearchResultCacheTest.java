@@ -0,0 +1,111 @@
+package com.intrence.core.elasticsearch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SearchResultCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+    private final SearchHits searchHits = new SearchHits(new SearchHit[]{new SearchHit(1)}, 1, 1);
+    private final SearchSpec search = new SearchSpec.Builder().index("products").documentType("doc")
+            .query(QueryBuilders.termQuery("designer", "acne")).limit(20).build();
+
+    private MetricRegistry metrics;
+    private SearchResultCache cache;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricRegistry();
+        cache = new SearchResultCache(100, 30000, 1000, metrics, ticker);
+    }
+
+    @Test
+    public void testServesResultUntilIndexIsWritten() {
+        Assert.assertNull(cache.get(search));
+        cache.put(search, cache.searchStart("products"), searchHits);
+        Assert.assertSame(searchHits, cache.get(search));
+
+        cache.written("brands");
+        Assert.assertSame(searchHits, cache.get(search));
+
+        cache.written("products");
+        Assert.assertNull(cache.get(search));
+        Assert.assertEquals(2, metrics.meter(MetricRegistry.name(ElasticSearchService.class, "search-cache", "hits")).getCount());
+        Assert.assertEquals(0.5, (Double) gauge("hit-rate").getValue(), 0.001);
+    }
+
+    @Test
+    public void testDoesNotCacheResultSearchedAcrossAWrite() {
+        SearchResultCache.SearchStart start = cache.searchStart("products");
+        advance(5000);
+        cache.written("products");
+        advance(5000);
+
+        cache.put(search, start, searchHits);
+        Assert.assertNull(cache.get(search));
+    }
+
+    @Test
+    public void testDoesNotCacheBeforeTheWriteIsRefreshed() {
+        cache.written("products");
+        advance(500);
+        cache.put(search, cache.searchStart("products"), searchHits);
+        Assert.assertNull(cache.get(search));
+
+        advance(500);
+        cache.put(search, cache.searchStart("products"), searchHits);
+        Assert.assertSame(searchHits, cache.get(search));
+    }
+
+    @Test
+    public void testDoesNotCacheSearchStartedBeforeTheWriteWasRefreshed() {
+        cache.written("products");
+        advance(500);
+        SearchResultCache.SearchStart start = cache.searchStart("products");
+        advance(600);
+
+        cache.put(search, start, searchHits);
+        Assert.assertNull(cache.get(search));
+    }
+
+    @Test
+    public void testExpiresAfterMaxStaleness() {
+        cache.put(search, cache.searchStart("products"), searchHits);
+        advance(29999);
+        Assert.assertSame(searchHits, cache.get(search));
+        advance(1);
+        Assert.assertNull(cache.get(search));
+    }
+
+    @Test
+    public void testAcceptsSingleIndexSearchesOnly() {
+        Assert.assertTrue(cache.accepts(search));
+        Assert.assertFalse(cache.accepts(new SearchSpec.Builder().index("products,brands").build()));
+        Assert.assertFalse(cache.accepts(new SearchSpec.Builder().index("products-*").build()));
+        Assert.assertFalse(SearchResultCache.disabled().accepts(search));
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private Gauge<?> gauge(String name) {
+        return metrics.getGauges().get(MetricRegistry.name(ElasticSearchService.class, "search-cache", name));
+    }
+}
@@ -0,0 +1,33 @@
+package com.intrence.core.persistence.bulk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ProductCsvEncoderTest {
+
+    @Test
+    public void testAppendField() {
+        Assert.assertEquals("", field(null));
+        Assert.assertEquals("\"\"", field(""));
+        Assert.assertEquals("Navy Coat", field("Navy Coat"));
+        Assert.assertEquals("\"a,b\"", field("a,b"));
+        Assert.assertEquals("\"say \"\"hi\"\"\"", field("say \"hi\""));
+        Assert.assertEquals("\"\\.\"", field("\\."));
+    }
+
+    @Test
+    public void testToArrayLiteral() {
+        Assert.assertNull(ProductCsvEncoder.toArrayLiteral(null));
+        Assert.assertEquals("{}", ProductCsvEncoder.toArrayLiteral(Collections.emptyList()));
+        Assert.assertEquals("{\"S\",\"M\"}", ProductCsvEncoder.toArrayLiteral(Arrays.asList("S", "M")));
+        Assert.assertEquals("{\"img,1.jpg\",\"a\\\"b\\\\c\",NULL}",
+                ProductCsvEncoder.toArrayLiteral(Arrays.asList("img,1.jpg", "a\"b\\c", null)));
+    }
+
+    private static String field(String value) {
+        return ProductCsvEncoder.appendField(new StringBuilder(), value).toString();
+    }
+}
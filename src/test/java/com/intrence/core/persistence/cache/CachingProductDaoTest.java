@@ -0,0 +1,65 @@
+package com.intrence.core.persistence.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.models.model.Product;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingProductDaoTest {
+
+    private final UUID productId = UUID.randomUUID();
+    private final ProductDao productDao = mock(ProductDao.class);
+
+    @Test
+    public void testServesCachedProductUntilWritten() {
+        Product product = product();
+        when(productDao.getProductById(productId)).thenReturn(product);
+        CachingProductDao cachingProductDao = new CachingProductDao(productDao, 100, 60, new MetricRegistry());
+
+        Assert.assertSame(product, cachingProductDao.getProductById(productId));
+        Assert.assertSame(product, cachingProductDao.getProductById(productId));
+        cachingProductDao.updateProduct(product);
+        Assert.assertSame(product, cachingProductDao.getProductById(productId));
+
+        verify(productDao, times(2)).getProductById(productId);
+    }
+
+    @Test
+    public void testDropsProductLoadedAcrossAWrite() throws Exception {
+        Product stale = product();
+        Product fresh = product();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        when(productDao.getProductById(productId)).thenAnswer(invocation -> {
+            loading.countDown();
+            written.await(5, TimeUnit.SECONDS);
+            return stale;
+        }).thenReturn(fresh);
+        CachingProductDao cachingProductDao = new CachingProductDao(productDao, 100, 60, new MetricRegistry());
+
+        CompletableFuture<Product> read = CompletableFuture.supplyAsync(() -> cachingProductDao.getProductById(productId));
+        Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cachingProductDao.updateProduct(fresh);
+        written.countDown();
+
+        Assert.assertSame(stale, read.get(5, TimeUnit.SECONDS));
+        Assert.assertSame(fresh, cachingProductDao.getProductById(productId));
+    }
+
+    private Product product() {
+        Product product = mock(Product.class);
+        when(product.getUuid()).thenReturn(productId);
+        return product;
+    }
+}
@@ -0,0 +1,82 @@
+package com.intrence.core.persistence.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.skife.jdbi.v2.exceptions.UnableToObtainConnectionException;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchWriterTest {
+
+    @Test
+    public void testWritesAllChunks() {
+        List<List<Integer>> batches = new ArrayList<>();
+        BatchResult<Integer> result = BatchWriter.write(Arrays.asList(1, 2, 3, 4, 5), 2, batches::add, i -> i);
+
+        Assert.assertEquals(5, result.getWrittenCount());
+        Assert.assertFalse(result.hasFailures());
+        Assert.assertEquals(3, batches.size());
+    }
+
+    @Test
+    public void testIsolatesFailingRows() {
+        List<Integer> written = new ArrayList<>();
+        BatchResult<Integer> result = BatchWriter.write(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), 4, chunk -> {
+            if (chunk.contains(3) || chunk.contains(8)) {
+                throw new UnableToExecuteStatementException(batchFailure("23505"));
+            }
+            written.addAll(chunk);
+        }, i -> i);
+
+        Assert.assertEquals(6, result.getWrittenCount());
+        Assert.assertEquals(Arrays.asList(3, 8), new ArrayList<>(result.getFailures().keySet()));
+        Assert.assertEquals(Arrays.asList(1, 2, 4, 5, 6, 7), written);
+    }
+
+    @Test
+    public void testRethrowsFailuresNotCausedByRows() {
+        List<List<Integer>> batches = new ArrayList<>();
+        try {
+            BatchWriter.write(Arrays.asList(1, 2, 3, 4), 4, chunk -> {
+                batches.add(chunk);
+                throw new UnableToExecuteStatementException(batchFailure("08006"));
+            }, i -> i);
+            Assert.fail("expected the connection failure");
+        } catch (UnableToExecuteStatementException e) {
+            Assert.assertEquals(1, batches.size());
+        }
+
+        try {
+            BatchWriter.write(Arrays.asList(1, 2), 2, chunk -> {
+                throw new UnableToObtainConnectionException(new SQLException("pool exhausted"));
+            }, i -> i);
+            Assert.fail("expected the pool failure");
+        } catch (UnableToObtainConnectionException e) {
+            // not bisected
+        }
+    }
+
+    @Test
+    public void testRejectsRowsWithoutKeyBeforeWriting() {
+        List<List<Integer>> batches = new ArrayList<>();
+        try {
+            BatchWriter.write(Arrays.asList(1, 2, null), 2, batches::add, i -> i);
+            Assert.fail("expected the row without a key to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("row 2 has no key", e.getMessage());
+        }
+        Assert.assertTrue(batches.isEmpty());
+    }
+
+    private static BatchUpdateException batchFailure(String sqlState) {
+        BatchUpdateException batchException = new BatchUpdateException("Batch entry 0 was aborted", new int[0]);
+        batchException.setNextException(new SQLException("statement failed", sqlState));
+        return batchException;
+    }
+}
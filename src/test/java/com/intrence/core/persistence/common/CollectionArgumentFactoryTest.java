@@ -0,0 +1,49 @@
+package com.intrence.core.persistence.common;
+
+import org.junit.Test;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CollectionArgumentFactoryTest {
+
+    private final CollectionArgumentFactory factory = new CollectionArgumentFactory();
+
+    @Test
+    public void testInfersElementType() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        assertBindsArray(Arrays.asList(null, uuid), "uuid", new Object[]{null, uuid});
+        assertBindsArray(Collections.emptyList(), "varchar", new Object[0]);
+    }
+
+    @Test
+    public void testBindsExplicitElementType() throws Exception {
+        assertBindsArray(new SqlArray<>("clothing_size_enum", Collections.singleton("XL")), "clothing_size_enum", new Object[]{"XL"});
+    }
+
+    @Test
+    public void testKeepsCommasInsideElements() throws Exception {
+        String link = "http://img.example.com/a,b.jpg";
+        assertBindsArray(Arrays.asList(link, "http://img.example.com/c.jpg"), "varchar", new Object[]{link, "http://img.example.com/c.jpg"});
+    }
+
+    private void assertBindsArray(Object value, String elementType, Object[] elements) throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        Array array = mock(Array.class);
+        when(statement.getConnection()).thenReturn(connection);
+        when(connection.createArrayOf(elementType, elements)).thenReturn(array);
+
+        factory.build(Object.class, value, null).apply(1, statement, null);
+
+        verify(statement).setArray(1, array);
+    }
+}
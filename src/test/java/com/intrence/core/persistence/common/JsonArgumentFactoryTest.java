@@ -0,0 +1,33 @@
+package com.intrence.core.persistence.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class JsonArgumentFactoryTest {
+
+    private final JsonArgumentFactory<Map<String, Object>> factory = new JsonArgumentFactory<>(new ObjectMapper());
+
+    @Test
+    public void testBindsUntypedJsonText() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        factory.build(JsonObject.class, new JsonObject<>(ImmutableMap.of("amount", 10)), null).apply(2, statement, null);
+        verify(statement).setObject(2, "{\"amount\":10}", Types.OTHER);
+    }
+
+    @Test
+    public void testReusesBufferBetweenValues() throws Exception {
+        Assert.assertEquals("{\"currency\":\"USD\",\"amount\":12}", factory.toJson(ImmutableMap.of("currency", "USD", "amount", 12)));
+        Assert.assertEquals("{}", factory.toJson(Collections.emptyMap()));
+        Assert.assertEquals("null", factory.toJson(null));
+    }
+}
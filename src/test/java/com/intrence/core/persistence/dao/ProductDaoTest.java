@@ -3,15 +3,21 @@
  */
 package com.intrence.core.persistence.dao;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Guice;
 import com.intrence.core.modules.PostgresModule;
 import com.intrence.models.model.Product;
 import com.intrence.core.util.ExampleProvider;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 public class ProductDaoTest {
 
     private static Product product = ExampleProvider.getExampleProduct();
+    private static ObjectMapper objectMapper = new ObjectMapper();
     private static ProductDao productDao = Guice.createInjector(new PostgresModule()).getInstance(ProductDao.class);
 
 //    @Test
@@ -40,4 +46,21 @@ public class ProductDaoTest {
         productDao.upsertProduct(product);
     }
 
+//    @Test
+    public void testUpsertProducts() {
+        productDao.deleteProductById(product.getUuid());
+
+        Assert.assertEquals(Collections.singletonMap(product.getUuid(), true),
+                productDao.upsertProducts(Collections.singletonList(product)));
+        Assert.assertEquals(Collections.singletonMap(product.getUuid(), false),
+                productDao.upsertProducts(Arrays.asList(product, product)));
+
+        Product productFromQuery = productDao.getProductById(product.getUuid());
+        Assert.assertEquals(product.getName(), productFromQuery.getName());
+        // prices round trip through jsonb
+        Assert.assertEquals(objectMapper.valueToTree(product.getOriginalPrice()), objectMapper.valueToTree(productFromQuery.getOriginalPrice()));
+        Assert.assertEquals(objectMapper.valueToTree(product.getCurrentPrice()), objectMapper.valueToTree(productFromQuery.getCurrentPrice()));
+        productDao.deleteProductById(product.getUuid());
+    }
+
 }
@@ -0,0 +1,53 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MethodTimingCollectorTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimesPerSqlObjectMethod() throws Exception {
+        StatementContext ctx = mock(StatementContext.class);
+        when(ctx.getSqlObjectType()).thenReturn((Class) ProductDao.class);
+        when(ctx.getSqlObjectMethod()).thenReturn(ProductDao.class.getMethod("getProductById", UUID.class));
+
+        MethodTimingCollector collector = new MethodTimingCollector(metrics);
+        collector.collect(1000, ctx);
+        collector.collect(1000, mock(StatementContext.class));
+
+        Assert.assertEquals(1, metrics.timer("jdbi.ProductDao.getProductById").getCount());
+        Assert.assertEquals(1, metrics.timer("jdbi.raw-sql").getCount());
+    }
+
+    @Test
+    public void testMarksRowsAndErrors() {
+        ProductDao delegate = mock(ProductDao.class);
+        UUID uuid = UUID.randomUUID();
+        when(delegate.getProductsByIds(Arrays.asList(uuid))).thenReturn(Arrays.asList(null, null));
+        when(delegate.getSourceById(uuid)).thenThrow(new UnableToExecuteStatementException("boom"));
+        ProductDao productDao = InstrumentedSqlObject.wrap(ProductDao.class, delegate, metrics);
+
+        productDao.getProductsByIds(Arrays.asList(uuid));
+        try {
+            productDao.getSourceById(uuid);
+            Assert.fail();
+        } catch (UnableToExecuteStatementException expected) {
+        }
+
+        Assert.assertEquals(2, metrics.meter("jdbi.ProductDao.getProductsByIds.rows").getCount());
+        Assert.assertEquals(1, metrics.meter("jdbi.ProductDao.getSourceById.errors").getCount());
+    }
+}
@@ -0,0 +1,39 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.StatementRewriter;
+
+import java.util.UUID;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NamePrependingStatementRewriterTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReusesTaggedSql() throws Exception {
+        StatementRewriter inner = mock(StatementRewriter.class);
+        StatementContext ctx = mock(StatementContext.class);
+        when(ctx.getSqlObjectType()).thenReturn((Class) ProductDao.class);
+        when(ctx.getSqlObjectMethod()).thenReturn(ProductDao.class.getMethod("getSourceById", UUID.class));
+
+        NamePrependingStatementRewriter rewriter = new NamePrependingStatementRewriter(inner);
+        rewriter.rewrite("SELECT 1", null, ctx);
+        rewriter.rewrite(new String("SELECT 1"), null, ctx);
+        rewriter.rewrite("SELECT 2", null, ctx);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(inner, times(3)).rewrite(sql.capture(), any(), any());
+        Assert.assertEquals("/* ProductDao.getSourceById */ SELECT 1", sql.getAllValues().get(0));
+        Assert.assertSame(sql.getAllValues().get(0), sql.getAllValues().get(1));
+        Assert.assertEquals("/* ProductDao.getSourceById */ SELECT 2", sql.getAllValues().get(2));
+    }
+}
@@ -0,0 +1,45 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
+
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QueryAccountingTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCountsStatementsByMethod() throws Exception {
+        StatementContext byId = mock(StatementContext.class);
+        when(byId.getSqlObjectType()).thenReturn((Class) ProductDao.class);
+        when(byId.getSqlObjectMethod()).thenReturn(ProductDao.class.getMethod("getProductById", UUID.class));
+        StatementContext raw = mock(StatementContext.class);
+
+        QueryAccountingCollector collector = new QueryAccountingCollector(TimingCollector.NOP_TIMING_COLLECTOR);
+        collector.collect(1_000_000L, byId);
+
+        QueryAccounting accounting = QueryAccounting.start("GET /products", 3);
+        try {
+            for (int i = 0; i < 5; i++) {
+                collector.collect(2_000_000L, byId);
+            }
+            collector.collect(1_000_000L, raw);
+        } finally {
+            accounting.close();
+        }
+        collector.collect(1_000_000L, byId);
+
+        Assert.assertNull(QueryAccounting.current());
+        Assert.assertEquals(6, accounting.getStatements());
+        Assert.assertEquals(11, accounting.getElapsedMillis());
+        Assert.assertEquals(1, accounting.getRepeatedMethods());
+        Assert.assertEquals(Integer.valueOf(5), accounting.getStatementsByMethod().get("ProductDao.getProductById"));
+        Assert.assertEquals(Integer.valueOf(1), accounting.getStatementsByMethod().get(MethodTimingCollector.RAW_SQL_NAME));
+    }
+}
@@ -0,0 +1,84 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.skife.jdbi.v2.Binding;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.Argument;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SlowQueryLogTest {
+
+    private static final String SQL = "SELECT * FROM products WHERE uuid = :uuid AND source = :source";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExplainsSlowSelectWithItsBinding() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Binding binding = mock(Binding.class);
+        when(binding.forName("uuid")).thenReturn((Argument) (position, statement, ctx) -> statement.setString(position, uuid));
+        when(binding.forName("source")).thenReturn((Argument) (position, statement, ctx) -> statement.setNull(position, Types.VARCHAR));
+        StatementContext ctx = mock(StatementContext.class);
+        when(ctx.getSqlObjectType()).thenReturn((Class) ProductDao.class);
+        when(ctx.getSqlObjectMethod()).thenReturn(ProductDao.class.getMethod("getProductById", UUID.class));
+        when(ctx.getLocatedSql()).thenReturn(SQL);
+        when(ctx.getBinding()).thenReturn(binding);
+
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement explain = mock(PreparedStatement.class);
+        ResultSet plan = mock(ResultSet.class);
+        Statement readOnly = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(readOnly);
+        when(connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM products WHERE uuid = ? AND source = ?")).thenReturn(explain);
+        when(explain.executeQuery()).thenReturn(plan);
+        when(plan.next()).thenReturn(true, false);
+        when(plan.getString(1)).thenReturn("Index Scan using products_pkey on products");
+
+        SlowQueryLog slowQueryLog = new SlowQueryLog(100, 1.0, 10);
+        slowQueryLog.record(TimeUnit.MILLISECONDS.toNanos(99), ctx, dataSource);
+        slowQueryLog.record(TimeUnit.MILLISECONDS.toNanos(1500), ctx, dataSource);
+
+        List<SlowQueryLog.CapturedPlan> plans = slowQueryLog.getCapturedPlans();
+        for (int i = 0; i < 100 && plans.isEmpty(); i++) {
+            Thread.sleep(50);
+            plans = slowQueryLog.getCapturedPlans();
+        }
+        slowQueryLog.stop();
+
+        Assert.assertEquals(1, plans.size());
+        Assert.assertEquals("ProductDao.getProductById", plans.get(0).getStatementName());
+        Assert.assertEquals(1500, plans.get(0).getElapsedMillis());
+        Assert.assertEquals("$1=<text len=36>, $2=null", plans.get(0).getBindSummary());
+        Assert.assertEquals("Index Scan using products_pkey on products", plans.get(0).getPlan());
+        verify(explain).setString(1, uuid);
+        verify(explain).setNull(2, Types.VARCHAR);
+        verify(explain).setQueryTimeout(3);
+        verify(connection, never()).setReadOnly(anyBoolean());
+        InOrder transaction = inOrder(connection, readOnly, explain);
+        transaction.verify(connection).setAutoCommit(false);
+        transaction.verify(readOnly).execute("SET TRANSACTION READ ONLY");
+        transaction.verify(explain).executeQuery();
+        transaction.verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+}
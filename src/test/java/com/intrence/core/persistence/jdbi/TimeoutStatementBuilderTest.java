@@ -0,0 +1,67 @@
+package com.intrence.core.persistence.jdbi;
+
+import com.google.common.collect.ImmutableMap;
+import com.intrence.core.concurrent.Deadline;
+import com.intrence.core.concurrent.DeadlineExceededException;
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.StatementContext;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TimeoutStatementBuilderTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfigOverridesAnnotationAndDefault() throws Exception {
+        TimeoutStatementBuilder builder = new TimeoutStatementBuilder(10000, ImmutableMap.of("ProductDao.getSourceById", 2500L));
+
+        Assert.assertEquals(2500, builder.timeoutMillis(context(ProductDao.class.getMethod("getSourceById", UUID.class))));
+        Assert.assertEquals(3000, builder.timeoutMillis(context(ProductDao.class.getMethod("getProductsByIds", Collection.class))));
+        Assert.assertEquals(10000, builder.timeoutMillis(context(ProductDao.class.getMethod("deleteProductById", UUID.class))));
+    }
+
+    @Test
+    public void testDeadlineShortensTimeout() throws Exception {
+        TimeoutStatementBuilder builder = new TimeoutStatementBuilder(10000, Collections.emptyMap());
+        StatementContext ctx = context(ProductDao.class.getMethod("deleteProductById", UUID.class));
+
+        try (Deadline.Scope ignored = Deadline.within(1500)) {
+            long timeoutMillis = builder.timeoutMillis(ctx);
+            Assert.assertTrue(timeoutMillis > 0 && timeoutMillis <= 1500);
+
+            Connection conn = mock(Connection.class);
+            PreparedStatement stmt = mock(PreparedStatement.class);
+            when(conn.prepareStatement("DELETE")).thenReturn(stmt);
+            builder.create(conn, "DELETE", ctx);
+            verify(stmt).setQueryTimeout(2);
+        }
+        Assert.assertNull(Deadline.current());
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void testExpiredDeadlineFailsBeforeStatement() throws Exception {
+        TimeoutStatementBuilder builder = new TimeoutStatementBuilder(10000, Collections.emptyMap());
+        try (Deadline.Scope ignored = Deadline.within(-1)) {
+            builder.timeoutMillis(context(ProductDao.class.getMethod("deleteProductById", UUID.class)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StatementContext context(Method method) {
+        StatementContext ctx = mock(StatementContext.class);
+        when(ctx.getSqlObjectType()).thenReturn((Class) ProductDao.class);
+        when(ctx.getSqlObjectMethod()).thenReturn(method);
+        return ctx;
+    }
+}
@@ -0,0 +1,98 @@
+package com.intrence.core.persistence.limit;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void testShedsLowPriorityFirst() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1000, metrics);
+        limiter.acquire(Priority.LOW);
+        limiter.acquire(Priority.LOW);
+        limiter.acquire(Priority.LOW);
+        try {
+            limiter.acquire(Priority.LOW);
+            Assert.fail();
+        } catch (ConcurrencyLimitExceededException expected) {
+        }
+        limiter.acquire(Priority.HIGH);
+        try {
+            limiter.acquire(Priority.HIGH);
+            Assert.fail();
+        } catch (ConcurrencyLimitExceededException expected) {
+        }
+        Assert.assertEquals(1, metrics.meter("test.rejected.low").getCount());
+        Assert.assertEquals(1, metrics.meter("test.rejected.high").getCount());
+    }
+
+    @Test
+    public void testBacksOffOnOverloadAndRecovers() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1000, metrics);
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire(Priority.HIGH), true);
+        }
+        Assert.assertEquals(3, limiter.getLimit());
+
+        // only a limit that is actually used grows
+        for (int round = 0; round < 100; round++) {
+            long[] starts = new long[limiter.getLimit()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = limiter.acquire(Priority.HIGH);
+            }
+            for (long start : starts) {
+                limiter.release(start, false);
+            }
+        }
+        Assert.assertEquals(10, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testBacksOffOncePerBurst() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 50, 1000, metrics);
+        long[] starts = new long[50];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = limiter.acquire(Priority.HIGH);
+        }
+        for (long start : starts) {
+            limiter.release(start, true);
+        }
+        Assert.assertEquals(45, limiter.getLimit());
+    }
+
+    @Test
+    public void testRecoversFromLimitOfOne() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 50, 1000, metrics);
+        while (limiter.getLimit() > 1) {
+            limiter.release(limiter.acquire(Priority.HIGH), true);
+        }
+
+        for (int round = 0; round < 1000 && limiter.getLimit() < 50; round++) {
+            long[] starts = new long[limiter.getLimit()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = limiter.acquire(Priority.HIGH);
+            }
+            for (long start : starts) {
+                limiter.release(start, false);
+            }
+        }
+        Assert.assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    public void testUntimedCallsOnlyBackOffOnOverload() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, metrics);
+        long start = limiter.acquire(Priority.HIGH);
+        Thread.sleep(5);
+        limiter.release(start, false, false);
+        Assert.assertEquals(10, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+
+        limiter.release(limiter.acquire(Priority.HIGH), true, false);
+        Assert.assertEquals(9, limiter.getLimit());
+    }
+}
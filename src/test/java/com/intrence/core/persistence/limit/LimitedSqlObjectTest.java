@@ -0,0 +1,61 @@
+package com.intrence.core.persistence.limit;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.sqlobject.mixins.GetHandle;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+
+import static org.mockito.Mockito.mock;
+
+public class LimitedSqlObjectTest {
+
+    public interface SlowDao extends GetHandle {
+        int write(int row);
+
+        default int writeAll(int rows) {
+            int written = 0;
+            for (int row = 0; row < rows; row++) {
+                written += write(row);
+            }
+            return written;
+        }
+    }
+
+    @Test
+    public void testBulkDefaultsAndHandlesDoNotFeedLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, new MetricRegistry());
+        Handle handle = mock(Handle.class);
+        SlowDao delegate = new SlowDao() {
+            @Override
+            public int write(int row) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+
+            @Override
+            public Handle getHandle() {
+                return handle;
+            }
+
+            @Override
+            public <ReturnType> ReturnType withHandle(HandleCallback<ReturnType> callback) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        SlowDao limited = LimitedSqlObject.wrap(SlowDao.class, delegate, limiter, Priority.HIGH);
+
+        Assert.assertEquals(3, limited.writeAll(3));
+        Assert.assertSame(handle, limited.getHandle());
+        Assert.assertEquals(10, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+
+        limited.write(0);
+        Assert.assertEquals(9, limiter.getLimit());
+    }
+}
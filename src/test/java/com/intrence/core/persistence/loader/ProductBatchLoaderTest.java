@@ -0,0 +1,92 @@
+package com.intrence.core.persistence.loader;
+
+import com.intrence.core.persistence.dao.ProductDao;
+import com.intrence.models.model.Product;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProductBatchLoaderTest {
+
+    private final UUID knownId = UUID.randomUUID();
+    private final UUID unknownId = UUID.randomUUID();
+    private final Product product = mock(Product.class);
+    private final ProductDao productDao = mock(ProductDao.class);
+
+    @Test
+    public void testCoalescesLoadsWithinWindow() throws Exception {
+        when(product.getUuid()).thenReturn(knownId);
+        when(productDao.getProductsByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.singletonList(product));
+        ProductBatchLoader loader = new ProductBatchLoader(productDao, 50_000, 100);
+
+        CompletableFuture<Product> known = loader.load(knownId);
+        CompletableFuture<Product> unknown = loader.load(unknownId);
+        CompletableFuture<Product> knownAgain = loader.load(knownId);
+
+        Assert.assertSame(product, known.get());
+        Assert.assertNull(unknown.get());
+        Assert.assertSame(known, knownAgain);
+        verify(productDao, times(1)).getProductsByIds(anyCollectionOf(UUID.class));
+        loader.stop();
+    }
+
+    @Test
+    public void testDispatchesFullBatchImmediately() throws Exception {
+        when(product.getUuid()).thenReturn(knownId);
+        when(productDao.getProductsByIds(anyCollectionOf(UUID.class))).thenReturn(Collections.singletonList(product));
+        // a window long enough that only the size trigger can complete the batch in time
+        ProductBatchLoader loader = new ProductBatchLoader(productDao, 60_000_000, 2);
+
+        Map<UUID, Product> products = loader.loadAll(Arrays.asList(knownId, unknownId));
+
+        Assert.assertEquals(Collections.singletonMap(knownId, product), products);
+        loader.stop();
+    }
+
+    @Test
+    public void testFailsAllLoadsOfFailedBatch() {
+        when(productDao.getProductsByIds(anyCollectionOf(UUID.class))).thenThrow(new IllegalStateException("down"));
+        ProductBatchLoader loader = new ProductBatchLoader(productDao, 1000, 100);
+
+        CompletableFuture<Product> first = loader.load(knownId);
+        CompletableFuture<Product> second = loader.load(unknownId);
+
+        for (CompletableFuture<Product> future : Arrays.asList(first, second)) {
+            try {
+                future.join();
+                Assert.fail("expected the batch failure");
+            } catch (RuntimeException e) {
+                Assert.assertEquals("down", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testFailsLoadsAfterStop() throws Exception {
+        ProductBatchLoader loader = new ProductBatchLoader(productDao, 1000, 100);
+        loader.stop();
+
+        CompletableFuture<Product> future = loader.load(knownId);
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            Assert.fail("expected the stopped loader to refuse the load");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        verify(productDao, times(0)).getProductsByIds(anyCollectionOf(UUID.class));
+    }
+}
@@ -0,0 +1,34 @@
+package com.intrence.core.persistence.postgres;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PoolSaturationMonitorTest {
+
+    @Test
+    public void testRecordsWaitsAndSaturation() throws Exception {
+        MetricRegistry metrics = new MetricRegistry();
+        DataSource pool = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(connection).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return connection;
+        });
+        PoolSaturationMonitor monitor = new PoolSaturationMonitor(pool, "test-pool", 10, metrics);
+
+        Assert.assertSame(connection, monitor.getConnection());
+        Assert.assertSame(connection, monitor.getConnection());
+
+        Assert.assertEquals(2, metrics.timer("test-pool.connection-wait").getCount());
+        Assert.assertEquals(1, metrics.meter("test-pool.saturated").getCount());
+        Assert.assertEquals(0, metrics.getGauges().get("test-pool.pending").getValue());
+        Assert.assertEquals(1, metrics.histogram("test-pool.pending-1m").getSnapshot().getMax());
+    }
+}
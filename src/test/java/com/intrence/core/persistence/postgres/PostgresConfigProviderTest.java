@@ -0,0 +1,35 @@
+package com.intrence.core.persistence.postgres;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+public class PostgresConfigProviderTest {
+
+    @Test
+    public void testAcceptsStatementTimeoutsBelowSocketTimeout() {
+        PostgresConfigProvider.checkStatementTimeouts(config("15", 10000, 5000));
+        PostgresConfigProvider.checkStatementTimeouts(config(null, 60000, 60000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDefaultStatementTimeoutAtSocketTimeout() {
+        PostgresConfigProvider.checkStatementTimeouts(config("5", 5000, 1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsMethodStatementTimeoutAboveSocketTimeout() {
+        PostgresConfigProvider.checkStatementTimeouts(config("5", 1000, 10000));
+    }
+
+    private static PostgresConfig config(String socketTimeout, long defaultStatementTimeoutMillis, long methodStatementTimeoutMillis) {
+        return new PostgresConfig.Builder()
+                .connectionProperties(socketTimeout == null ? new HashMap<>()
+                        : new HashMap<>(Collections.singletonMap(PostgresConfigProvider.SOCKET_TIMEOUT_PROPERTY, socketTimeout)))
+                .defaultStatementTimeoutMillis(defaultStatementTimeoutMillis)
+                .statementTimeouts(ImmutableMap.of("ProductDao.upsertProduct", methodStatementTimeoutMillis))
+                .build();
+    }
+}
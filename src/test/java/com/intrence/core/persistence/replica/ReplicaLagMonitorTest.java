@@ -0,0 +1,63 @@
+package com.intrence.core.persistence.replica;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicaLagMonitorTest {
+
+    @Test
+    public void testPicksFunctionNamesByServerVersion() {
+        Assert.assertTrue(ReplicaLagMonitor.lagMillisSql(9).contains("pg_last_xlog_receive_location()"));
+        Assert.assertTrue(ReplicaLagMonitor.lagMillisSql(10).contains("pg_last_wal_receive_lsn()"));
+        Assert.assertTrue(ReplicaLagMonitor.lagMillisSql(11).contains("pg_last_wal_replay_lsn()"));
+    }
+
+    @Test
+    public void testReadsLagWithTheServersFunctions() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(20L);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseMajorVersion()).thenReturn(10);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getMetaData()).thenReturn(metaData);
+        DataSource fresh = mock(DataSource.class);
+        when(fresh.getConnection()).thenReturn(connection);
+        DataSource down = mock(DataSource.class);
+        when(down.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(Arrays.asList(fresh, down), 100, new MetricRegistry());
+        monitor.poll();
+        monitor.poll();
+
+        verify(statement, times(2)).executeQuery(ReplicaLagMonitor.lagMillisSql(10));
+        Assert.assertTrue(monitor.isFresh(0));
+        Assert.assertFalse(monitor.isFresh(1));
+        Assert.assertEquals(ReplicaLagMonitor.UNKNOWN_LAG, monitor.getLagMillis(1));
+    }
+
+    @Test
+    public void testStaleUntilFirstPoll() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(Collections.singletonList(mock(DataSource.class)), 100, new MetricRegistry());
+        Assert.assertFalse(monitor.isFresh(0));
+    }
+}
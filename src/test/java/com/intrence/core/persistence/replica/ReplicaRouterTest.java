@@ -0,0 +1,73 @@
+package com.intrence.core.persistence.replica;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intrence.core.persistence.dao.ProductDao;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRouterTest {
+
+    private final UUID uuid = UUID.randomUUID();
+    private final ProductDao primary = mock(ProductDao.class);
+    private final ProductDao replica = mock(ProductDao.class);
+
+    @Test
+    public void testRoutesEligibleReadsToFreshReplica() throws Exception {
+        ProductDao productDao = route(replicaWithLag(10));
+
+        productDao.lookupProductById(uuid);
+        productDao.deleteProductById(uuid);
+
+        verify(replica).lookupProductById(uuid);
+        verify(primary, never()).lookupProductById(uuid);
+        verify(primary).deleteProductById(uuid);
+    }
+
+    @Test
+    public void testFallsBackToPrimaryWhenReplicaIsStale() throws Exception {
+        ProductDao productDao = route(replicaWithLag(60000));
+
+        productDao.lookupProductById(uuid);
+
+        verify(primary).lookupProductById(uuid);
+        verify(replica, never()).lookupProductById(uuid);
+    }
+
+    private ProductDao route(DataSource replicaDataSource) {
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(Arrays.asList(replicaDataSource), 1000, new MetricRegistry());
+        Assert.assertFalse(lagMonitor.isFresh(0));
+        lagMonitor.poll();
+        return ReplicaRouter.route(ProductDao.class, primary, Arrays.asList(replica), lagMonitor);
+    }
+
+    private static DataSource replicaWithLag(long lagMillis) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseMajorVersion()).thenReturn(10);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+        return dataSource;
+    }
+}